@@ -0,0 +1,180 @@
+package com.biljardspel;
+
+import java.awt.*;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.awt.image.BufferStrategy;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * ****************************************************************************************
+ * ActiveRenderer
+ * <p>
+ * Paints a Table actively (-Dbiljard.render=active): onto a Canvas with a
+ * BufferStrategy, from a thread of its own, instead of asking Swing to repaint
+ * and waiting for the repaint manager to get round to it. The render thread
+ * decides when each frame is drawn and shown: it draws the whole table into the
+ * back buffer and flips it at once, one frame each display refresh (or
+ * -Dbiljard.frameHz times a second if that is given), so frames are neither
+ * merged nor late by more than the drawing takes. While the table is at rest
+ * the thread sleeps until the table or the mouse wakes it.
+ * <p>
+ * The Table stays the model of what is shown and gets the mouse input from the
+ * canvas; it shares its frame state with the render thread under its own lock.
+ * With -Dbiljard.metrics=true the time between frames and how late each one is
+ * go into Metrics. If no BufferStrategy can be made, start() says so and the
+ * table is shown as a plain panel.
+ */
+class ActiveRenderer implements Runnable {
+
+    static final int BUFFERS = 2;
+    static final int FALLBACK_HZ = 60;          // when the display does not say its refresh rate
+
+    final Canvas canvas = new Canvas();
+    private final Table table;
+    private final AtomicBoolean wanted = new AtomicBoolean(true);   // another frame was asked for
+    private BufferStrategy strategy;
+    private volatile Thread thread;             // set on the event thread, woken from any
+    private long periodNanos;
+    private boolean flipping;                   // the strategy flips pages rather than copying the back buffer
+
+    ActiveRenderer(Table table) {
+        this.table = table;
+        canvas.setPreferredSize(table.getPreferredSize());
+        canvas.setIgnoreRepaint(true);          // everything is painted by the render thread
+        canvas.addMouseListener(table);
+        canvas.addMouseMotionListener(table);
+        canvas.addComponentListener(new ComponentAdapter() {
+            public void componentResized(ComponentEvent e) {
+                table.resizeTo(canvas.getWidth(), canvas.getHeight());
+                wake();
+            }
+        });
+        table.setRenderer(this);
+    }
+
+    /**
+     * Makes the buffers and starts the render thread, once the canvas is shown,
+     * on the event thread. Returns false, and leaves the table to paint itself,
+     * if that fails.
+     */
+    boolean start() {
+        try {
+            try {
+                canvas.createBufferStrategy(BUFFERS, new BufferCapabilities(new ImageCapabilities(true),
+                        new ImageCapabilities(true), BufferCapabilities.FlipContents.UNDEFINED));
+                flipping = true;
+            } catch (AWTException e) {
+                canvas.createBufferStrategy(BUFFERS);   // whatever the platform can do, blitting most likely
+            }
+            strategy = canvas.getBufferStrategy();
+        } catch (RuntimeException e) {          // eg IllegalStateException if the canvas is not displayable
+            strategy = null;
+        }
+
+        if (strategy == null) {
+            table.setRenderer(null);
+            return false;
+        }
+
+        int hz = Integer.getInteger("biljard.frameHz", 0);
+        if (hz <= 0) {                          // not given, or no rate at all
+            hz = refreshRate();
+        }
+        periodNanos = 1_000_000_000L / hz;
+        table.resizeTo(canvas.getWidth(), canvas.getHeight());
+
+        thread = new Thread(this, "render");
+        thread.setDaemon(true);
+        thread.start();
+        return true;
+    }
+
+    private int refreshRate() {
+        GraphicsConfiguration configuration = canvas.getGraphicsConfiguration();
+        if (configuration == null) {
+            return FALLBACK_HZ;
+        }
+
+        int rate = configuration.getDevice().getDisplayMode().getRefreshRate();
+        return rate <= DisplayMode.REFRESH_RATE_UNKNOWN ? FALLBACK_HZ : rate;
+    }
+
+    boolean isFlipping() {
+        return flipping;
+    }
+
+    void wake() {                               // from any thread
+        wanted.set(true);
+        Thread t = thread;
+        if (t != null) {
+            LockSupport.unpark(t);
+        }
+    }
+
+    public void run() {
+        long next = System.nanoTime();
+        long lastShown = 0;
+        boolean moving = true;
+
+        while (canvas.isDisplayable()) {
+            if (!moving && !wanted.getAndSet(false)) {
+                LockSupport.park(this);         // until wake(); a spurious return only costs a frame
+                next = System.nanoTime();
+                lastShown = 0;
+                continue;
+            }
+            wanted.set(false);
+
+            long now = System.nanoTime();
+            if (next - now > 0) {
+                LockSupport.parkNanos(this, next - now);
+                now = System.nanoTime();
+            }
+
+            if (Metrics.ENABLED) {
+                Metrics.late(Metrics.FRAME_LATENESS_NANOS, "render", Math.max(0, now - next));
+            }
+            next = now - next > periodNanos ? now + periodNanos : next + periodNanos;   // behind by a frame: skip it
+
+            boolean wasMoving = moving;
+            moving = drawAndShow();
+
+            if (Metrics.ENABLED) {
+                long shown = System.nanoTime();
+                if (lastShown != 0) {
+                    Metrics.FRAME_NANOS.record(shown - lastShown);
+                }
+                lastShown = shown;
+            }
+
+            if (wasMoving && !moving) {
+                EventQueue.invokeLater(table::cameToRest);
+            }
+        }
+    }
+
+    /**
+     * Draws a frame into the back buffer and shows it, again if the buffers were
+     * lost meanwhile. Returns whether the table wants more frames.
+     */
+    private boolean drawAndShow() {
+        boolean moving;
+        do {
+            do {
+                Graphics2D g2D = (Graphics2D) strategy.getDrawGraphics();
+                try {
+                    moving = table.renderFrame(g2D);
+                } finally {
+                    g2D.dispose();
+                }
+            } while (strategy.contentsRestored());
+
+            strategy.show();
+        } while (strategy.contentsLost());
+
+        Toolkit.getDefaultToolkit().sync();     // out to the screen now, not when the pipeline gets to it
+        return moving;
+    }
+}
@@ -0,0 +1,82 @@
+package com.biljardspel;
+
+import java.awt.*;
+
+/**
+ * ****************************************************************************************
+ * Ball:
+ * <p>
+ * The ball has instance variables relating to its graphics. Its position and
+ * velocity are kept in the BallState of its world, at the index of the ball.
+ * Aiming is done by the table, which owns the mouse.
+ */
+class Ball {
+
+     private Color COLOR;
+     static final int BORDER_THICKNESS = 2;
+     static final double RADIUS = 15;
+     static final double DIAMETER = 2 * RADIUS;
+     private final World world;
+     final int index;                           // the position and velocity are kept in world.state at this index
+
+    Ball(World world, int index) {
+         this.world = world;
+         this.index = index;
+    }
+
+    static void setColorBall(Ball[] myballs) {
+         for (Ball ball : myballs) {
+             ball.COLOR = colorOf(ball.world.state.kind[ball.index]);
+         }
+    }
+
+    static Color colorOf(byte kind) {
+         if (kind == BallState.CUE) {
+             return Color.WHITE;
+         } else if (kind == BallState.RED) {
+             return Color.RED;
+         } else if (kind == BallState.BLUE) {
+             return Color.BLUE;
+         }
+         return Color.BLACK;
+    }
+
+   double x() {
+         return world.state.x[index];
+   }
+
+   double y() {
+         return world.state.y[index];
+   }
+
+   Coord position() {
+         return new Coord(x(), y());
+   }
+
+   boolean isMoving() {
+         return Physics.isMoving(world.state, index);
+   }
+
+   void move() {
+         world.moveBall(index);
+   }
+
+   void paintBall(Graphics2D g2D) {
+        paintBall(g2D, COLOR, x(), y());
+   }
+
+   static void paintBall(Graphics2D g2D, Color color, double x, double y) {
+        g2D.setColor(Color.BLACK);
+        g2D.fillOval(
+                (int) (x - RADIUS + 0.5),
+                (int) (y - RADIUS + 0.5),
+                (int) (DIAMETER),
+                (int) (DIAMETER));
+        g2D.setColor(color);
+        g2D.fillOval(
+                (int) (x - RADIUS + 0.5 + BORDER_THICKNESS),
+                (int) (y - RADIUS + 0.5 + BORDER_THICKNESS),
+                (int) (DIAMETER - 2 * BORDER_THICKNESS),
+                (int) (DIAMETER - 2 * BORDER_THICKNESS));
+   }
+}
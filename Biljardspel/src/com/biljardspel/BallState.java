@@ -0,0 +1,60 @@
+package com.biljardspel;
+
+/**
+ * ****************************************************************************************
+ * BallState
+ * <p>
+ * The simulated state of all balls of a world, stored as parallel arrays indexed by
+ * ball number: position, velocity, what kind of ball it is and whether it is still
+ * on the table. Keeping the state in primitive arrays lets the physics run without
+ * allocating anything per simulation step.
+ */
+class BallState {
+
+    static final byte ON_TABLE = 0;             // status
+    static final byte POCKETED = 1;
+
+    static final byte CUE = 0;                  // kind
+    static final byte RED = 1;
+    static final byte BLUE = 2;
+    static final byte BLACK = 3;
+
+    final int count;
+    final double[] x;
+    final double[] y;
+    final double[] vx;
+    final double[] vy;
+    final byte[] status;
+    final byte[] kind;
+
+    BallState(int count) {
+        this.count = count;
+        x = new double[count];
+        y = new double[count];
+        vx = new double[count];
+        vy = new double[count];
+        status = new byte[count];
+        kind = new byte[count];
+    }
+
+    void place(int i, double xPos, double yPos) {
+        x[i] = xPos;
+        y[i] = yPos;
+        vx[i] = 0;
+        vy[i] = 0;
+        status[i] = ON_TABLE;
+    }
+
+    void copyFrom(BallState other) {
+        System.arraycopy(other.x, 0, x, 0, count);
+        System.arraycopy(other.y, 0, y, 0, count);
+        System.arraycopy(other.vx, 0, vx, 0, count);
+        System.arraycopy(other.vy, 0, vy, 0, count);
+        System.arraycopy(other.status, 0, status, 0, count);
+        System.arraycopy(other.kind, 0, kind, 0, count);
+    }
+
+    boolean isPocketed(int i) {
+        return status[i] == POCKETED;
+    }
+}
@@ -0,0 +1,401 @@
+package com.biljardspel;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * ****************************************************************************************
+ * BatchRunner
+ * <p>
+ * Plays any number of whole games without a display, for tuning the physics
+ * (-Dbiljard.friction, -Dbiljard.table, -Dbiljard.pockets) and for soak tests:
+ * <pre>
+ *   java -cp biljardspel.jar com.biljardspel.BatchRunner [games [output]]
+ * </pre>
+ * Both sides are played by a shooter (-Dbiljard.shooter): RANDOM shoots in a
+ * random direction at a random speed; AIM shoots at one of its own balls, or any
+ * ball, straight at its centre, at a random speed. Game k draws from a random
+ * generator seeded with -Dbiljard.seed and k, so a game plays the same however
+ * the games are shared out over the threads.
+ * <p>
+ * The games are split up on a ForkJoinPool of -Dbiljard.threads workers (every
+ * core by default), which steal from each other whatever ranges are left, and
+ * each worker plays its games on a world of its own. A game is written out as
+ * soon as it is over and then forgotten: a line of CSV, or a fixed record of
+ * binary if the output ends in .bin (see BinarySink), to standard output if
+ * there is no output. It says who won, how many shots and fouls there were, the
+ * balls sunk in each hole, the simulated time, and how the game ended: won, cut
+ * off after -Dbiljard.maxShots shots, STUCK, a shot whose balls had not come to
+ * rest after MAX_SHOT_STEPS steps, or NO_ROOM, the white ball fell in and there
+ * was nowhere to put it back. Every second, and at the end, the games per second
+ * so far go to standard error.
+ */
+class BatchRunner {
+
+    static final byte RANDOM = 0;               // shooters
+    static final byte AIM = 1;
+    static final String[] SHOOTERS = {"random", "aim"};
+
+    static final byte WON = 0;                  // how a game ended
+    static final byte SHOT_LIMIT = 1;
+    static final byte STUCK = 2;
+    static final byte NO_ROOM = 3;
+    static final String[] ENDS = {"won", "shotLimit", "stuck", "noRoom"};
+
+    static final byte NOBODY = 0;               // winners
+    static final byte RED = 1;
+    static final byte BLUE = 2;
+
+    static final int MAX_SHOT_STEPS = 100000;   // 1000 s of simulated time at 100 Hz
+    static final int GRAIN = 8;                 // games a task plays itself rather than splitting
+
+    final TableGeometry table;
+    final int ballCount;
+    final ScenarioGenerator scenario;
+    final byte shooter;
+    final long seed;
+    int maxShots = 1000;
+    double minSpeed = 2;
+    double maxSpeed = 14;
+
+    final LongAdder gamesPlayed = new LongAdder();
+    final LongAdder shotsPlayed = new LongAdder();
+    final LongAdder stuck = new LongAdder();
+    final LongAdder noRoom = new LongAdder();
+
+    private final ThreadLocal<World> worlds = new ThreadLocal<>();
+    private World template;
+
+    /**
+     * One game, as it is written out.
+     */
+    static final class Game implements PhysicsEventQueue.Listener {
+        long index;
+        byte winner;
+        byte end;
+        int shots;
+        int fouls;
+        long steps;                             // simulated
+        final int[] pocketed;                   // per hole, the white ball too
+
+        Game(int holes) {
+            pocketed = new int[holes];
+        }
+
+        public void event(byte type, int ball, int other, long step) {
+            if (type == PhysicsEventQueue.POCKETED || type == PhysicsEventQueue.SCRATCH) {
+                pocketed[other]++;
+            }
+        }
+
+        double seconds() {
+            return steps / (double) Biljard.UPDATE_FREQUENCY;
+        }
+    }
+
+    /**
+     * Where the games go. write() is called from every worker, so a sink keeps
+     * its own order.
+     */
+    interface Sink extends AutoCloseable {
+        void write(Game game) throws IOException;
+
+        void close() throws IOException;
+    }
+
+    BatchRunner(TableGeometry table, int ballCount, ScenarioGenerator scenario, byte shooter, long seed) {
+        this.table = table;
+        this.ballCount = ballCount;
+        this.scenario = scenario;
+        this.shooter = shooter;
+        this.seed = seed;
+    }
+
+    static byte shooter(String name) {
+        for (byte k = 0; k < SHOOTERS.length; k++) {
+
+            if (SHOOTERS[k].equals(name)) {
+                return k;
+            }
+        }
+        throw new IllegalArgumentException("Unknown shooter " + name + ", should be random or aim");
+    }
+
+    /**
+     * Plays games first up to but not including last on the pool, writing each to
+     * the sink as it ends.
+     */
+    void run(long first, long last, ForkJoinPool pool, Sink sink) {
+        template = new World(table, ballCount, scenario);
+        pool.invoke(new Games(first, last, sink));
+    }
+
+    private final class Games extends RecursiveAction {
+        private static final long serialVersionUID = 1L;   // never serialized, but a task is Serializable
+
+        private final long first;
+        private final long last;
+        private final Sink sink;
+
+        Games(long first, long last, Sink sink) {
+            this.first = first;
+            this.last = last;
+            this.sink = sink;
+        }
+
+        protected void compute() {
+            if (last - first > GRAIN) {
+                long middle = (first + last) >>> 1;
+                invokeAll(new Games(first, middle, sink), new Games(middle, last, sink));
+                return;
+            }
+
+            Game game = new Game(template.holes.length);
+            for (long k = first; k < last; k++) {
+                play(k, game);
+                try {
+                    sink.write(game);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Plays game k from the rack to the end into game, on this thread's world.
+     */
+    void play(long k, Game game) {
+        World world = worlds.get();
+        if (world == null) {
+            world = new World(table, ballCount, scenario);
+            worlds.set(world);
+        }
+        world.copyFrom(template);
+        world.observer = game;
+
+        SplittableRandom random = new SplittableRandom(seed * 0x9E3779B97F4A7C15L + k);
+        game.index = k;
+        game.end = WON;
+        game.shots = 0;
+        game.fouls = 0;
+        game.steps = 0;
+        Arrays.fill(game.pocketed, 0);
+
+        while (world.resultMessage == null) {
+            if (game.shots == maxShots) {
+                game.end = SHOT_LIMIT;
+                break;
+            }
+
+            if (world.isWhiteBallInHole()) {
+                Coord place;
+                try {
+                    place = ShotSearch.placement(world);
+                } catch (IllegalStateException e) {
+                    game.end = NO_ROOM;
+                    noRoom.increment();
+                    break;
+                }
+                world.placeWhiteBallAt(place.x, place.y);
+            }
+            world.shoot(shot(world, random));
+            game.steps += world.runUntilRest(MAX_SHOT_STEPS);
+            game.shots++;
+
+            if (!world.allBallStopped()) {
+                game.end = STUCK;
+                stuck.increment();
+                break;
+            }
+            if (world.rules.foul) {
+                game.fouls++;
+            }
+        }
+        world.observer = null;
+
+        game.winner = winner(world);
+        gamesPlayed.increment();
+        shotsPlayed.add(game.shots);
+    }
+
+    private Shot shot(World world, SplittableRandom random) {
+        double speed = random.nextDouble(minSpeed, maxSpeed);
+
+        if (shooter == AIM) {
+            int target = target(world, random);
+            if (target >= 0) {
+                BallState s = world.state;
+                return new Shot(StrictMath.atan2(s.y[target] - s.y[0], s.x[target] - s.x[0]), speed);
+            }
+        }
+        return new Shot(random.nextDouble(-Math.PI, Math.PI), speed);
+    }
+
+    private static int target(World world, SplittableRandom random) {   // a random own ball, else any, else -1
+        byte own = world.redPlayer ? BallState.RED : BallState.BLUE;
+        int owned = 0;
+        int others = 0;
+
+        for (int k = 0; k < world.activeCount(); k++) {
+            int i = world.activeBall(k);
+            if (world.state.kind[i] == own) {
+                owned++;
+            } else if (i != 0) {
+                others++;
+            }
+        }
+
+        int pick = owned > 0 ? random.nextInt(owned) : others > 0 ? random.nextInt(others) : -1;
+        if (pick < 0) {
+            return -1;
+        }
+
+        for (int k = 0; k < world.activeCount(); k++) {
+            int i = world.activeBall(k);
+
+            if (i != 0 && (world.state.kind[i] == own) == (owned > 0) && pick-- == 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static byte winner(World world) {
+        String result = world.resultMessage;
+        if (result == World.RESULT_MESSAGES[0] || result == World.RESULT_MESSAGES[3]) {
+            return RED;
+        }
+        if (result == World.RESULT_MESSAGES[1] || result == World.RESULT_MESSAGES[2]) {
+            return BLUE;
+        }
+        return NOBODY;
+    }
+
+    /**
+     * A line per game: index, winner (0 nobody, 1 red, 2 blue), end, shots, fouls,
+     * simulated seconds, then the balls sunk in each hole.
+     */
+    static final class CsvSink implements Sink {
+        private final Writer out;
+        private final StringBuilder line = new StringBuilder();
+
+        CsvSink(OutputStream out, int holes) throws IOException {
+            this.out = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 1 << 16);
+            this.out.write("game,winner,end,shots,fouls,seconds");
+            for (int h = 0; h < holes; h++) {
+                this.out.write(",hole" + h);
+            }
+            this.out.write('\n');
+        }
+
+        public synchronized void write(Game game) throws IOException {
+            line.setLength(0);
+            line.append(game.index).append(',').append(game.winner).append(',').append(ENDS[game.end])
+                    .append(',').append(game.shots).append(',').append(game.fouls)
+                    .append(',').append(game.seconds());
+            for (int count : game.pocketed) {
+                line.append(',').append(count);
+            }
+            line.append('\n');
+            out.append(line);
+        }
+
+        public synchronized void close() throws IOException {
+            out.close();
+        }
+    }
+
+    /**
+     * The same in big-endian binary, after a header of MAGIC and the number of
+     * holes: per game the index as a long, winner and end as bytes, shots and
+     * fouls as ints, the simulated steps as a long and then a short per hole.
+     */
+    static final class BinarySink implements Sink {
+        static final int MAGIC = 0x42415443;    // "BATC"
+
+        private final DataOutputStream out;
+
+        BinarySink(OutputStream out, int holes) throws IOException {
+            this.out = new DataOutputStream(new BufferedOutputStream(out, 1 << 16));
+            this.out.writeInt(MAGIC);
+            this.out.writeByte(holes);
+        }
+
+        public synchronized void write(Game game) throws IOException {
+            out.writeLong(game.index);
+            out.writeByte(game.winner);
+            out.writeByte(game.end);
+            out.writeInt(game.shots);
+            out.writeInt(game.fouls);
+            out.writeLong(game.steps);
+            for (int count : game.pocketed) {
+                out.writeShort(count);
+            }
+        }
+
+        public synchronized void close() throws IOException {
+            out.close();
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        long games = args.length > 0 ? Long.parseLong(args[0]) : 10000;
+        String output = args.length > 1 ? args[1] : null;
+
+        int ballCount = Integer.getInteger("biljard.balls", World.STANDARD_BALLS);
+        BatchRunner runner = new BatchRunner(TableGeometry.fromProperties(ballCount), ballCount,
+                ScenarioGenerator.fromProperties(), shooter(System.getProperty("biljard.shooter", "random")),
+                Long.getLong("biljard.seed", 42));
+        runner.maxShots = Integer.getInteger("biljard.maxShots", runner.maxShots);
+        ForkJoinPool pool = new ForkJoinPool(Integer.getInteger("biljard.threads",
+                Runtime.getRuntime().availableProcessors()));
+
+        int holes = runner.table.createHoles().length;
+        OutputStream stream = output == null ? System.out : new FileOutputStream(output);
+        long start = System.nanoTime();
+
+        try (Sink sink = output != null && output.endsWith(".bin")
+                ? new BinarySink(stream, holes) : new CsvSink(stream, holes)) {
+            Thread progress = new Thread(() -> {
+                try {
+                    while (true) {
+                        Thread.sleep(1000);
+                        System.err.println(runner.progress(start));
+                    }
+                } catch (InterruptedException e) {
+                    // done
+                }
+            }, "progress");
+            progress.setDaemon(true);
+            progress.start();
+
+            runner.run(0, games, pool, sink);
+            progress.interrupt();
+        } finally {
+            pool.shutdown();
+        }
+        System.err.println(runner.progress(start));
+    }
+
+    String progress(long start) {
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long played = gamesPlayed.sum();
+        return String.format("%d games in %.1f s, %.0f games/s, %.1f shots/game, %d stuck, %d without room",
+                played, seconds, played / seconds, played == 0 ? 0 : shotsPlayed.sum() / (double) played, stuck.sum(),
+                noRoom.sum());
+    }
+}
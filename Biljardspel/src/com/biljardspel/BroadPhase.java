@@ -0,0 +1,26 @@
+package com.biljardspel;
+
+/**
+ * ****************************************************************************************
+ * BroadPhase
+ * <p>
+ * Finds the balls that may touch a given ball, so that the exact contact test only
+ * has to be done for those. The world tells the broad phase when a ball has moved,
+ * been put on the table or been taken off it, so it can be kept up to date
+ * incrementally instead of being rebuilt every step.
+ */
+interface BroadPhase {
+
+    void rebuild(BallState s);                  // forget everything and add every ball that is on the table
+
+    void moved(BallState s, int i);             // ball i is on the table, at a new position
+
+    void removed(int i);                        // ball i has left the table
+
+    /**
+     * Writes the balls that may touch ball i into out, in increasing order, and
+     * returns how many there are. Ball i itself is never included. The array must
+     * have room for every ball.
+     */
+    int candidates(BallState s, int i, int[] out);
+}
@@ -0,0 +1,29 @@
+package com.biljardspel;
+
+/**
+ * ****************************************************************************************
+ * BruteForceBroadPhase
+ * <p>
+ * Every other ball on the table is a candidate. This is what the table always did, and it is kept
+ * to cross-check the results of the faster broad phases: since candidates are
+ * returned in the same order, a shot simulated with either gives the same result.
+ */
+class BruteForceBroadPhase implements BroadPhase {
+
+    public void rebuild(BallState s) { }
+
+    public void moved(BallState s, int i) { }
+
+    public void removed(int i) { }
+
+    public int candidates(BallState s, int i, int[] out) {
+        int n = 0;
+        for (int j = 0; j < s.count; j++) {
+
+            if (j != i && !s.isPocketed(j)) {
+                out[n++] = j;
+            }
+        }
+        return n;
+    }
+}
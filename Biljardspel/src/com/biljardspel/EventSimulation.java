@@ -0,0 +1,434 @@
+package com.biljardspel;
+
+import java.util.Arrays;
+
+/**
+ * ****************************************************************************************
+ * EventSimulation
+ * <p>
+ * An alternative to stepping a world UPDATE_FREQUENCY times per second. Under the
+ * friction model of Physics a rolling ball keeps its direction and loses
+ * FRICTION_PER_UPDATE of speed per step, so its position is a quadratic function of
+ * time until it stops. That makes it possible to solve for the moment of the next
+ * event: two balls touching, a ball reaching a wall or a hole, or a ball coming to
+ * rest. The simulation jumps straight from one event to the next, so a whole shot
+ * takes tens of events instead of thousands of steps.
+ * <p>
+ * Time is measured in steps, so it can be compared with the stepped simulation. Each
+ * ball is stored in the BallState of the world as it was at its own time t0; call
+ * advanceTo() to bring every ball to the same moment, eg before painting.
+ */
+class EventSimulation {
+
+    static final byte NONE = 0;                 // types of events
+    static final byte COLLISION = 1;
+    static final byte WALL_X = 2;
+    static final byte WALL_Y = 3;
+    static final byte POCKET = 4;
+    static final byte REST = 5;
+
+    private static final double F = Physics.FRICTION_PER_UPDATE;
+    private static final double CONTACT = Ball.DIAMETER;
+
+    private final World world;
+    private final BallState s;
+    private final double[] t0;                  // the time at which each ball is stored in the state
+    private final double[] eventTime;           // the next event of each ball, found by findEvent()
+    private final byte[] eventType;
+    private final int[] eventOther;             // the other ball of a collision, or the hole
+
+    private final double[] quartic = new double[5];
+    private final double[] quadratic = new double[3];
+    private final double[] found = new double[4];
+    private final double[] roots = new double[Polynomial.scratchSize(4)];   // for Polynomial.roots()
+    private final double[] pathI = new double[6];
+    private final double[] pathJ = new double[6];
+
+    private double time;
+    private int events;
+
+    EventSimulation(World world) {
+        this.world = world;
+        s = world.state;
+        t0 = new double[s.count];
+        eventTime = new double[s.count];
+        eventType = new byte[s.count];
+        eventOther = new int[s.count];
+        begin();
+    }
+
+    /**
+     * Starts over from the current state of the world, eg after a shot. Balls that
+     * the stepped simulation would consider to be at rest are stopped completely.
+     */
+    void begin() {
+        time = 0;
+        Arrays.fill(t0, 0);
+
+        for (int i = 0; i < s.count; i++) {
+
+            if (!Physics.isMoving(s, i)) {
+                s.vx[i] = 0;
+                s.vy[i] = 0;
+            }
+        }
+
+        for (int i = 0; i < s.count; i++) {
+            findEvent(i);
+        }
+        world.velocitiesChanged();
+    }
+
+    double time() {
+        return time;
+    }
+
+    int events() {                              // the number of events handled since the simulation was made
+        return events;
+    }
+
+    /**
+     * Handles every event up to and including the given time and then brings all
+     * balls to that time, so that the state of the world can be painted as usual.
+     */
+    void advanceTo(double t) {
+        int next = nextEvent();
+        while (next >= 0 && eventTime[next] <= t) {
+            handle(next);
+            next = nextEvent();
+        }
+
+        time = Math.max(time, t);
+        for (int i = 0; i < s.count; i++) {
+
+            if (!s.isPocketed(i)) {
+                sync(i, time);
+            }
+        }
+
+        world.velocitiesChanged();
+        if (next < 0) {
+            world.checkShotEnded();
+        } else {
+            world.applyRules();
+        }
+    }
+
+    /**
+     * Handles events until every ball is at rest, or until maxEvents events have
+     * been handled. Returns the number of events handled.
+     */
+    int runUntilRest(int maxEvents) {
+        int handled = 0;
+        int next = nextEvent();
+        while (next >= 0 && handled < maxEvents) {
+            handle(next);
+            handled++;
+            next = nextEvent();
+        }
+        advanceTo(time);
+        return handled;
+    }
+
+    private int nextEvent() {
+        int next = -1;
+        for (int i = 0; i < s.count; i++) {
+
+            if (eventType[i] != NONE && (next < 0 || eventTime[i] < eventTime[next])) {
+                next = i;
+            }
+        }
+        return next;
+    }
+
+    private void handle(int i) {
+        time = Math.max(time, eventTime[i]);
+        events++;
+        byte type = eventType[i];
+        int other = eventOther[i];
+        sync(i, time);
+
+        if (type == COLLISION) {
+            sync(other, time);
+            collide(i, other);
+        } else if (type == WALL_X) {
+            s.vx[i] = -s.vx[i];
+        } else if (type == WALL_Y) {
+            s.vy[i] = -s.vy[i];
+        } else if (type == POCKET) {
+            world.ballInHole(i, other);
+        } else if (type == REST) {              // the time may not have moved at all if the ball was nearly stopped
+            s.vx[i] = 0;
+            s.vy[i] = 0;
+        }
+
+        findEvent(i);
+        if (type == COLLISION) {
+            findEvent(other);
+        }
+
+        for (int k = 0; k < s.count; k++) {     // events that were found against the old path are void
+
+            if (eventType[k] == COLLISION && k != i && k != other
+                    && (eventOther[k] == i || (type == COLLISION && eventOther[k] == other))) {
+                findEvent(k);
+            }
+        }
+    }
+
+    private void collide(int i, int j) {        // the same exchange of momentum as Physics.ballsHit
+        double px = s.x[i] - s.x[j];
+        double py = s.y[i] - s.y[j];
+        double distance = Math.sqrt(px * px + py * py);
+        double dx = px / distance;
+        double dy = py / distance;
+        double J = -((s.vx[i] - s.vx[j]) * dx + (s.vy[i] - s.vy[j]) * dy);
+
+        if (J > 0) {
+            s.vx[i] += J * dx;
+            s.vy[i] += J * dy;
+            s.vx[j] -= J * dx;
+            s.vy[j] -= J * dy;
+            world.contact(i, j);
+        }
+    }
+
+    private double speed(int i) {
+        return Math.sqrt(s.vx[i] * s.vx[i] + s.vy[i] * s.vy[i]);
+    }
+
+    private void sync(int i, double t) {        // store ball i as it is at time t
+        double speed = speed(i);
+
+        if (speed > 0) {
+            double tau = Math.min(t - t0[i], speed / F);
+            double travelled = speed * tau - 0.5 * F * tau * tau;
+            double remaining = speed - F * tau;
+            s.x[i] += s.vx[i] / speed * travelled;
+            s.y[i] += s.vy[i] / speed * travelled;
+
+            if (remaining <= 0 || tau >= speed / F) {
+                s.vx[i] = 0;
+                s.vy[i] = 0;
+            } else {
+                s.vx[i] *= remaining / speed;
+                s.vy[i] *= remaining / speed;
+            }
+        }
+        t0[i] = t;
+    }
+
+    private void findEvent(int i) {
+        eventType[i] = NONE;
+        eventTime[i] = Double.POSITIVE_INFINITY;
+
+        if (s.isPocketed(i)) {
+            return;
+        }
+        sync(i, time);
+        double speed = speed(i);
+
+        if (speed > 0) {
+            double stop = speed / F;
+            consider(i, REST, -1, stop);
+
+            double ax = -0.5 * F * s.vx[i] / speed;
+            double ay = -0.5 * F * s.vy[i] / speed;
+            findWallEvents(i, ax, ay, stop);
+            findPocketEvents(i, ax, ay, stop);
+        }
+
+        for (int j = 0; j < s.count; j++) {
+
+            if (j != i && !s.isPocketed(j)) {
+                findCollision(i, j);
+            }
+        }
+    }
+
+    private void consider(int i, byte type, int other, double dt) {
+        if (time + dt < eventTime[i]) {
+            eventTime[i] = time + dt;
+            eventType[i] = type;
+            eventOther[i] = other;
+        }
+    }
+
+    private void findWallEvents(int i, double ax, double ay, double stop) {
+        consider(i, WALL_X, -1, firstCrossing(s.x[i], s.vx[i], ax, world.table.maxX, true, stop));
+        consider(i, WALL_X, -1, firstCrossing(s.x[i], s.vx[i], ax, world.table.minX, false, stop));
+        consider(i, WALL_Y, -1, firstCrossing(s.y[i], s.vy[i], ay, world.table.maxY, true, stop));
+        consider(i, WALL_Y, -1, firstCrossing(s.y[i], s.vy[i], ay, world.table.minY, false, stop));
+    }
+
+    /**
+     * The first time in [0, stop] at which p + v t + a t^2 reaches the limit while
+     * moving beyond it, or infinity.
+     */
+    private double firstCrossing(double p, double v, double a, double limit, boolean upwards, double stop) {
+        if (upwards ? (p >= limit && v > 0) : (p <= limit && v < 0)) {
+            return 0;
+        }
+        quadratic[0] = p - limit;
+        quadratic[1] = v;
+        quadratic[2] = a;
+        int n = Polynomial.roots(quadratic, 2, 0, stop, found, roots);
+
+        for (int k = 0; k < n; k++) {
+            double slope = v + 2 * a * found[k];
+
+            if (upwards ? slope > 0 : slope < 0) {
+                return found[k];
+            }
+        }
+        return Double.POSITIVE_INFINITY;
+    }
+
+    private void findPocketEvents(int i, double ax, double ay, double stop) {
+        for (int h = 0; h < world.holes.length; h++) {
+            Hole hole = world.holes[h];
+
+            if (hole.shape == Hole.CORNER) {
+                setQuartic(s.x[i] - hole.holeCenterX, s.y[i] - hole.holeCenterY, s.vx[i], s.vy[i], ax, ay,
+                        hole.captureRadius);
+                consider(i, POCKET, h, firstDecreasingRoot(stop));
+            } else {
+                consider(i, POCKET, h, firstInSideHole(i, ax, ay, hole, stop));
+            }
+        }
+    }
+
+    /**
+     * The first time in [0, stop] at which a side hole takes the ball, ie its centre
+     * enters the capture box of the hole. That can only start when the ball crosses
+     * one of the edges of the box.
+     */
+    private double firstInSideHole(int i, double ax, double ay, Hole hole, double stop) {
+        double best = insideSideHole(i, ax, ay, hole, 0) ? 0 : Double.POSITIVE_INFINITY;
+
+        for (int edge = 0; edge < 3 && best > 0; edge++) {
+
+            if (edge == 0) {
+                quadratic[0] = s.x[i] - (hole.shape == Hole.LEFT_SIDE ? hole.captureMaxX : hole.captureMinX);
+                quadratic[1] = s.vx[i];
+                quadratic[2] = ax;
+            } else {
+                quadratic[0] = s.y[i] - (edge == 1 ? hole.captureMinY : hole.captureMaxY);
+                quadratic[1] = s.vy[i];
+                quadratic[2] = ay;
+            }
+            int n = Polynomial.roots(quadratic, 2, 0, stop, found, roots);
+
+            for (int k = 0; k < n; k++) {
+
+                if (found[k] < best && insideSideHole(i, ax, ay, hole, found[k])) {
+                    best = found[k];
+                }
+            }
+        }
+        return best;
+    }
+
+    private boolean insideSideHole(int i, double ax, double ay, Hole hole, double dt) {
+        double margin = 1e-9;
+        double x = s.x[i] + s.vx[i] * dt + ax * dt * dt;
+        double y = s.y[i] + s.vy[i] * dt + ay * dt * dt;
+        return x >= hole.captureMinX - margin && x <= hole.captureMaxX + margin
+                && y >= hole.captureMinY - margin && y <= hole.captureMaxY + margin;
+    }
+
+    private void findCollision(int i, int j) {
+        sync(j, time);
+        double stopI = speed(i) / F;
+        double stopJ = speed(j) / F;
+
+        if (stopI == 0 && stopJ == 0) {
+            return;
+        }
+
+        double px = s.x[i] - s.x[j];
+        double py = s.y[i] - s.y[j];
+        double reach = CONTACT + 0.5 * F * (stopI * stopI + stopJ * stopJ);   // how far both can still roll
+        if (px * px + py * py > reach * reach) {
+            return;
+        }
+
+        double first = Math.min(stopI, stopJ);
+        double last = Math.max(stopI, stopJ);
+        double dt = pairApproach(i, j, 0, first);
+
+        if (dt == Double.POSITIVE_INFINITY && last > first) {
+            dt = pairApproach(i, j, first, last);
+        }
+        consider(i, COLLISION, j, dt);
+    }
+
+    /**
+     * The first moment in [from, to] at which balls i and j touch while approaching
+     * each other. In that interval each ball is either rolling or at rest for good.
+     */
+    private double pairApproach(int i, int j, double from, double to) {
+        path(i, from, pathI);
+        path(j, from, pathJ);
+        setQuartic(pathI[0] - pathJ[0], pathI[1] - pathJ[1], pathI[2] - pathJ[2],
+                pathI[3] - pathJ[3], pathI[4] - pathJ[4], pathI[5] - pathJ[5], CONTACT);
+        double dt = firstDecreasingRoot(to - from);
+        return dt == Double.POSITIVE_INFINITY ? dt : from + dt;
+    }
+
+    /**
+     * The path of a ball from time t on, as x, y, vx, vy, ax, ay such that its
+     * position is (x + vx t + ax t^2, y + vy t + ay t^2).
+     */
+    private void path(int i, double t, double[] p) {
+        double speed = speed(i);
+        Arrays.fill(p, 0);
+
+        if (speed == 0) {
+            p[0] = s.x[i];
+            p[1] = s.y[i];
+            return;
+        }
+        double ux = s.vx[i] / speed;
+        double uy = s.vy[i] / speed;
+        double tau = Math.min(t, speed / F);
+        double travelled = speed * tau - 0.5 * F * tau * tau;
+        p[0] = s.x[i] + ux * travelled;
+        p[1] = s.y[i] + uy * travelled;
+
+        if (tau < speed / F) {
+            double remaining = speed - F * tau;
+            p[2] = ux * remaining;
+            p[3] = uy * remaining;
+            p[4] = -0.5 * F * ux;
+            p[5] = -0.5 * F * uy;
+        }
+    }
+
+    /**
+     * The squared distance between a moving point and the origin, minus the squared
+     * distance at which the event happens.
+     */
+    private void setQuartic(double px, double py, double vx, double vy, double ax, double ay, double distance) {
+        quartic[0] = px * px + py * py - distance * distance;
+        quartic[1] = 2 * (px * vx + py * vy);
+        quartic[2] = vx * vx + vy * vy + 2 * (px * ax + py * ay);
+        quartic[3] = 2 * (vx * ax + vy * ay);
+        quartic[4] = ax * ax + ay * ay;
+    }
+
+    private double firstDecreasingRoot(double to) {
+        if (quartic[0] <= 0 && quartic[1] < 0) {
+            return 0;
+        }
+        int n = Polynomial.roots(quartic, 4, 0, to, found, roots);
+
+        for (int k = 0; k < n; k++) {
+
+            if (Polynomial.derivative(quartic, 4, found[k]) < 0) {
+                return found[k];
+            }
+        }
+        return Double.POSITIVE_INFINITY;
+    }
+}
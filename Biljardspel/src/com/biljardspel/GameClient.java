@@ -0,0 +1,167 @@
+package com.biljardspel;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ****************************************************************************************
+ * GameClient
+ * <p>
+ * A load test for the GameServer over loopback. It opens a number of games that
+ * then sit idle, and has a number of players, each on a connection of its own,
+ * shoot random shots in games of their own, all at once. A player whose white
+ * ball falls in puts it back somewhere random, and one whose game is over opens
+ * a new one. At the end it prints the latency of the shots as seen by the
+ * players and the server's own statistics.
+ * <p>
+ * java com.biljardspel.GameClient [games] [players] [shots per player] [port]
+ * <p>
+ * Without a port a server is started in the same process.
+ */
+class GameClient implements AutoCloseable {
+
+    private final Socket socket;
+    private final BufferedReader in;
+    private final Writer out;
+
+    GameClient(int port) throws IOException {
+        socket = new Socket(InetAddress.getLoopbackAddress(), port);
+        socket.setTcpNoDelay(true);
+        in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+        out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.US_ASCII));
+    }
+
+    String request(String line) throws IOException {
+        send(line);
+        out.flush();
+        return receive();
+    }
+
+    void send(String line) throws IOException {  // for pipelining: send a number of requests, then receive the replies
+        out.write(line);
+        out.write('\n');
+    }
+
+    String receive() throws IOException {
+        out.flush();
+        String reply = in.readLine();
+        if (reply == null) {
+            throw new IOException("The server closed the connection");
+        }
+        return reply;
+    }
+
+    public void close() throws IOException {
+        out.write("quit\n");
+        out.flush();
+        socket.close();
+    }
+
+    private static String newGame(GameClient client) throws IOException {
+        return client.request("new").split(" ")[1];
+    }
+
+    private static void play(int port, int shots, long seed, LatencyHistogram latency) throws IOException {
+        SplittableRandom random = new SplittableRandom(seed);
+
+        try (GameClient client = new GameClient(port)) {
+            String game = newGame(client);
+
+            for (int k = 0; k < shots; k++) {
+                long start = System.nanoTime();
+                String reply = client.request("shoot " + game + " " + random.nextDouble(-Math.PI, Math.PI)
+                        + " " + random.nextDouble(3, 12));
+                latency.record(System.nanoTime() - start);
+
+                if (!reply.startsWith("ok")) {
+                    throw new IOException(reply);
+                }
+                if (reply.contains(" over ")) {
+                    client.request("close " + game);
+                    game = newGame(client);
+                } else if (reply.contains("cue pocketed")) {
+                    String placed;
+                    do {
+                        placed = client.request("placeCueBall " + game + " " + random.nextDouble(40, 410)
+                                + " " + random.nextDouble(40, 590));
+                    } while (!placed.startsWith("ok"));
+                }
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int players = args.length > 1 ? Integer.parseInt(args[1]) : 1_000;
+        int shots = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+
+        GameServer server = null;
+        int port;
+        if (args.length > 3) {
+            port = Integer.parseInt(args[3]);
+        } else {
+            server = new GameServer(0);
+            server.start();
+            port = server.port();
+        }
+
+        try (GameClient client = new GameClient(port)) {
+            for (int opened = 0; opened < games; opened += 1000) {  // in rounds, so neither side's buffers fill up
+                int round = Math.min(1000, games - opened);
+                for (int k = 0; k < round; k++) {
+                    client.send("new");
+                }
+                for (int k = 0; k < round; k++) {
+                    client.receive();
+                }
+            }
+        }
+        System.out.println(games + " idle games opened");
+
+        LatencyHistogram latency = new LatencyHistogram();
+        ExecutorService executor = GameServer.newConnectionExecutor();
+        CountDownLatch done = new CountDownLatch(players);
+        long start = System.nanoTime();
+
+        for (int p = 0; p < players; p++) {
+            long seed = p;
+            executor.execute(() -> {
+                try {
+                    play(port, shots, seed, latency);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%d players, %d shots in %.2f s, %.0f shots/s%n",
+                players, latency.count(), seconds, latency.count() / seconds);
+        System.out.printf("client latency p50 %d us, p99 %d us, max %d us%n",
+                latency.percentile(0.5) / 1000, latency.percentile(0.99) / 1000, latency.percentile(1) / 1000);
+
+        try (GameClient client = new GameClient(port)) {
+            System.out.println("server: " + client.request("stats"));
+        }
+        if (server != null) {
+            server.close();
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.biljardspel;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * ****************************************************************************************
+ * GameRecord
+ * <p>
+ * One game read back from a log written by a GameRecorder. The log is a sequence
+ * of games, each of them
+ * <pre>
+ *   int   MAGIC
+ *   byte  VERSION
+ *   short steps per second it was simulated at
+ *   byte  MODE_STEPPED or MODE_DETERMINISTIC
+ *   short number of balls
+ *   short width, height and wall thickness of the table, and byte its pocket
+ *         layout
+ *   byte  the most sub-steps a step was split into
+ *   byte  RACK_STANDARD, or RACK_LISTED followed by x, y (doubles), kind and status
+ *         (bytes) of every ball
+ *   then records of byte SHOT or PLACE, varint steps since the record before,
+ *         and two doubles: the velocity of the shot or the place of the white ball
+ *   byte  END
+ * </pre>
+ * A game cut short, eg because the program was stopped, ends at its last whole
+ * record. The steps are kept as absolute step numbers since the rack.
+ */
+class GameRecord {
+
+    static final int MAGIC = 0x424A5231;       // "BJR1"
+    static final byte VERSION = 1;
+
+    static final byte MODE_STEPPED = 0;         // how World.step() moved the balls
+    static final byte MODE_DETERMINISTIC = 1;
+
+    static final byte RACK_STANDARD = 0;
+    static final byte RACK_LISTED = 1;
+
+    static final byte END = 0;                  // record types
+    static final byte SHOT = 1;
+    static final byte PLACE = 2;
+
+    final int simulationHz;
+    final boolean deterministic;
+    final int ballCount;
+    final TableGeometry table;
+    final int maxSubsteps;
+    final BallState rack;                       // null for the standard rack
+    int events;
+    byte[] type = new byte[16];
+    long[] step = new long[16];                 // the step at which the input came
+    double[] a = new double[16];                // vx of a shot or x of a placement
+    double[] b = new double[16];                // and vy or y
+
+    private GameRecord(int simulationHz, boolean deterministic, int ballCount, TableGeometry table, int maxSubsteps,
+                       BallState rack) {
+        this.simulationHz = simulationHz;
+        this.deterministic = deterministic;
+        this.ballCount = ballCount;
+        this.table = table;
+        this.maxSubsteps = maxSubsteps;
+        this.rack = rack;
+    }
+
+    /**
+     * Reads the next game of a log, or returns null at the end of the log.
+     */
+    static GameRecord read(DataInputStream in) throws IOException {
+        int magic;
+        try {
+            magic = in.readInt();
+        } catch (EOFException e) {
+            return null;
+        }
+
+        if (magic != MAGIC) {
+            throw new IOException("Not a game record: " + Integer.toHexString(magic));
+        }
+        byte version = in.readByte();
+        if (version != VERSION) {
+            throw new IOException("Unknown game record version " + version);
+        }
+
+        int simulationHz = in.readUnsignedShort();
+        boolean deterministic = in.readByte() == MODE_DETERMINISTIC;
+        int ballCount = in.readUnsignedShort();
+        TableGeometry table = new TableGeometry(in.readUnsignedShort(), in.readUnsignedShort(), in.readUnsignedShort(),
+                in.readByte());
+        int maxSubsteps = in.readUnsignedByte();
+        BallState rack = null;
+
+        if (in.readByte() == RACK_LISTED) {
+            rack = new BallState(ballCount);
+            for (int i = 0; i < ballCount; i++) {
+                rack.x[i] = in.readDouble();
+                rack.y[i] = in.readDouble();
+                rack.kind[i] = in.readByte();
+                rack.status[i] = in.readByte();
+            }
+        }
+
+        GameRecord record = new GameRecord(simulationHz, deterministic, ballCount, table, maxSubsteps, rack);
+        long lastStep = 0;
+        try {
+            byte type;
+            while ((type = in.readByte()) != END) {
+                lastStep += readVarLong(in);
+                record.add(type, lastStep, in.readDouble(), in.readDouble());
+            }
+        } catch (EOFException e) {
+            // cut short, keep what is there
+        }
+        return record;
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        int shift = 0;
+        int b;
+
+        do {
+            b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    private void add(byte t, long s, double first, double second) {
+        if (events == type.length) {
+            type = Arrays.copyOf(type, 2 * events);
+            step = Arrays.copyOf(step, 2 * events);
+            a = Arrays.copyOf(a, 2 * events);
+            b = Arrays.copyOf(b, 2 * events);
+        }
+        type[events] = t;
+        step[events] = s;
+        a[events] = first;
+        b[events] = second;
+        events++;
+    }
+
+    static boolean isStandardRack(World world) {   // the balls are where a new world on its table puts them
+        BallState s = world.state;
+        BallState standard = new World(world.table, s.count, null).state;
+
+        for (int i = 0; i < s.count; i++) {
+
+            if (s.x[i] != standard.x[i] || s.y[i] != standard.y[i] || s.kind[i] != standard.kind[i]
+                    || s.status[i] != standard.status[i] || s.vx[i] != 0 || s.vy[i] != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    World newWorld() {                          // the world as it was when the game began
+        World world = new World(table, ballCount, null);
+        world.deterministic = deterministic;
+        world.maxSubsteps = maxSubsteps;
+
+        if (rack != null) {
+            world.state.copyFrom(rack);
+            world.ballsPlaced();
+        }
+        return world;
+    }
+}
@@ -0,0 +1,128 @@
+package com.biljardspel;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * ****************************************************************************************
+ * GameRecorder
+ * <p>
+ * Appends games to a binary log. A game is written as a header with the table
+ * and the rack, followed by one record per input: the velocity given to the
+ * white ball by a shot, or where the white ball was put back after it fell in.
+ * Each record also has the number of steps simulated since the record before
+ * it, as a varint, so a shot takes 18 bytes or so and a whole game about a
+ * kilobyte. The standard rack is written as a single byte.
+ * <p>
+ * Like a PrintStream, the recorder does not throw: the game goes on when the log
+ * cannot be written, and checkError() tells whether that happened.
+ *
+ * @see GameRecord for the format
+ */
+class GameRecorder {
+
+    private final DataOutputStream out;
+    private boolean inGame;
+    private long lastStep;
+    private IOException error;
+
+    GameRecorder(OutputStream out) {
+        this.out = new DataOutputStream(new BufferedOutputStream(out));
+    }
+
+    void beginGame(World world) {
+        if (inGame) {
+            endGame();
+        }
+        BallState s = world.state;
+
+        try {
+            out.writeInt(GameRecord.MAGIC);
+            out.writeByte(GameRecord.VERSION);
+            out.writeShort(Biljard.UPDATE_FREQUENCY);
+            out.writeByte(world.deterministic ? GameRecord.MODE_DETERMINISTIC : GameRecord.MODE_STEPPED);
+            out.writeShort(s.count);
+            out.writeShort(world.table.width);
+            out.writeShort(world.table.height);
+            out.writeShort(world.table.wallThickness);
+            out.writeByte(world.table.pockets);
+            out.writeByte(world.maxSubsteps);
+
+            if (GameRecord.isStandardRack(world)) {
+                out.writeByte(GameRecord.RACK_STANDARD);
+            } else {
+                out.writeByte(GameRecord.RACK_LISTED);
+                for (int i = 0; i < s.count; i++) {
+                    out.writeDouble(s.x[i]);
+                    out.writeDouble(s.y[i]);
+                    out.writeByte(s.kind[i]);
+                    out.writeByte(s.status[i]);
+                }
+            }
+        } catch (IOException e) {
+            error = e;
+        }
+        inGame = true;
+        lastStep = world.stepCount;
+    }
+
+    void shot(long step, double vx, double vy) {
+        write(GameRecord.SHOT, step, vx, vy);
+    }
+
+    void place(long step, double x, double y) {
+        write(GameRecord.PLACE, step, x, y);
+    }
+
+    void endGame() {
+        try {
+            out.writeByte(GameRecord.END);
+            out.flush();
+        } catch (IOException e) {
+            error = e;
+        }
+        inGame = false;
+    }
+
+    void close() {
+        if (inGame) {
+            endGame();
+        }
+
+        try {
+            out.close();
+        } catch (IOException e) {
+            error = e;
+        }
+    }
+
+    boolean checkError() {
+        return error != null;
+    }
+
+    private void write(byte type, long step, double a, double b) {
+        if (!inGame) {
+            return;
+        }
+
+        try {
+            out.writeByte(type);
+            writeVarLong(step - lastStep);
+            out.writeDouble(a);
+            out.writeDouble(b);
+        } catch (IOException e) {
+            error = e;
+        }
+        lastStep = step;
+    }
+
+    private void writeVarLong(long value) throws IOException {  // seven bits at a time, lowest first
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+}
@@ -0,0 +1,289 @@
+package com.biljardspel;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ****************************************************************************************
+ * GameServer
+ * <p>
+ * Hosts any number of games without a display, each a World of its own, and
+ * plays them for clients over a line based TCP protocol. A game costs nothing
+ * but its memory while nobody shoots: there is no thread per game. Each
+ * connection gets a thread, a virtual one when the JVM has them (Java 21 and
+ * later) and otherwise one from a cached pool, and a shot is simulated to rest
+ * on the thread of the connection that made it, holding the game's lock. The
+ * games run World.stepTogether(), so every shot can be checked by replaying it.
+ * <p>
+ * Requests and replies, one line each:
+ * <pre>
+ *   new                              ok GAME
+ *   shoot GAME ANGLE SPEED           ok GAME STEPS red R blue B player red|blue [foul] cue X Y|pocketed [over MESSAGE]
+ *   placeCueBall GAME X Y            ok GAME
+ *   state GAME                       ok GAME player red|blue then x y of each ball, or - if pocketed [over MESSAGE]
+ *   close GAME                       ok GAME
+ *   stats                            ok games G shots S p50 US p99 US max US
+ *   quit
+ * </pre>
+ * The speed of a shot is as in Shot, the latencies are in microseconds from the
+ * request being read to the reply being ready. Anything wrong is answered with
+ * a line starting with err. A game that is over keeps its table and its result
+ * for state, but takes no more shots; open a new one to play again.
+ */
+class GameServer {
+
+    static final int DEFAULT_PORT = 7777;
+    static final int MAX_STEPS = 100_000;      // a shot is cut off after this, whatever is still rolling
+
+    private final ServerSocket serverSocket;
+    private final ExecutorService connections = newConnectionExecutor();
+    private final Map<Long, Game> games = new ConcurrentHashMap<>();
+    private final AtomicLong nextGame = new AtomicLong();
+    private final AtomicLong shots = new AtomicLong();
+    private final LatencyHistogram shotLatency = new LatencyHistogram();
+
+    private static final class Game {
+        final World world = new World();
+
+        Game() {
+            world.deterministic = true;
+        }
+    }
+
+    GameServer(int port) throws IOException {
+        serverSocket = new ServerSocket(port, 1024, InetAddress.getLoopbackAddress());
+    }
+
+    int port() {
+        return serverSocket.getLocalPort();
+    }
+
+    int games() {
+        return games.size();
+    }
+
+    LatencyHistogram shotLatency() {
+        return shotLatency;
+    }
+
+    /**
+     * A virtual thread per task where the JVM has them. They are looked up by
+     * reflection so that the server still builds and runs on Java 17.
+     */
+    static ExecutorService newConnectionExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(task -> {
+                Thread thread = new Thread(task, "connection");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    void serve() {
+        try {
+            while (!serverSocket.isClosed()) {
+                Socket socket = serverSocket.accept();
+                connections.execute(() -> handle(socket));
+            }
+        } catch (IOException e) {
+            // closed
+        }
+    }
+
+    void start() {
+        Thread thread = new Thread(this::serve, "accept");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    void close() throws IOException {
+        serverSocket.close();
+        connections.shutdownNow();
+    }
+
+    private void handle(Socket socket) {
+        try (socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+             Writer out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.US_ASCII))) {
+            socket.setTcpNoDelay(true);
+            String line;
+
+            while ((line = in.readLine()) != null && !line.equals("quit")) {
+                out.write(reply(line));
+                out.write('\n');
+
+                if (!in.ready()) {                  // flush once a burst of pipelined requests has been answered
+                    out.flush();
+                }
+            }
+        } catch (IOException e) {
+            // the client went away
+        }
+    }
+
+    String reply(String line) {
+        String[] words = line.trim().split("\\s+");
+        try {
+            switch (words[0]) {
+                case "new":
+                    long id = nextGame.incrementAndGet();
+                    games.put(id, new Game());
+                    return "ok " + id;
+                case "shoot":
+                    return shoot(game(words[1]), words[1],
+                            Double.parseDouble(words[2]), Double.parseDouble(words[3]));
+                case "placeCueBall":
+                    return placeCueBall(game(words[1]), words[1],
+                            Double.parseDouble(words[2]), Double.parseDouble(words[3]));
+                case "state":
+                    return state(game(words[1]), words[1]);
+                case "close":
+                    return games.remove(Long.parseLong(words[1])) != null ? "ok " + words[1] : "err no game " + words[1];
+                case "stats":
+                    return "ok games " + games.size() + " shots " + shots.get()
+                            + " p50 " + shotLatency.percentile(0.5) / 1000
+                            + " p99 " + shotLatency.percentile(0.99) / 1000
+                            + " max " + shotLatency.percentile(1) / 1000;
+                default:
+                    return "err unknown request " + words[0];
+            }
+        } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+            return "err bad request " + line;
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            return "err " + e.getMessage();
+        }
+    }
+
+    private Game game(String id) {
+        Game game = games.get(Long.parseLong(id));
+        if (game == null) {
+            throw new IllegalArgumentException("no game " + id);
+        }
+        return game;
+    }
+
+    private String shoot(Game game, String id, double angle, double speed) {
+        long start = System.nanoTime();
+        World world = game.world;
+        int steps;
+
+        synchronized (game) {
+            checkNotOver(world);
+            if (world.isWhiteBallInHole()) {
+                throw new IllegalStateException("place the cue ball first");
+            }
+            if (!world.allBallStopped()) {
+                throw new IllegalStateException("the balls are still moving");
+            }
+            if (!(speed >= 0 && speed <= 100)) {
+                throw new IllegalArgumentException("speed out of range " + speed);
+            }
+            if (!Double.isFinite(angle)) {      // NaN would spread to every ball it touched
+                throw new IllegalArgumentException("bad angle " + angle);
+            }
+
+            world.shoot(new Shot(angle, speed));
+            steps = world.runUntilRest(MAX_STEPS);
+            stopAll(world);
+
+            StringBuilder reply = new StringBuilder("ok ").append(id).append(' ').append(steps)
+                    .append(" red ").append(world.redBallNumber)
+                    .append(" blue ").append(world.blueBallNumber)
+                    .append(" player ").append(world.redPlayer ? "red" : "blue");
+            if (world.rules.foul) {
+                reply.append(" foul");
+            }
+            if (world.isWhiteBallInHole()) {
+                reply.append(" cue pocketed");
+            } else {
+                reply.append(" cue ").append(world.state.x[0]).append(' ').append(world.state.y[0]);
+            }
+            if (world.resultMessage != null) {
+                reply.append(" over ").append(world.resultMessage.trim());
+            }
+            shots.incrementAndGet();
+            shotLatency.record(System.nanoTime() - start);
+            return reply.toString();
+        }
+    }
+
+    private static void checkNotOver(World world) {
+        if (world.rules.state == RulesEngine.GAME_OVER) {
+            throw new IllegalStateException("the game is over, open a new one");
+        }
+    }
+
+    private static void stopAll(World world) {  // a shot cut off at MAX_STEPS leaves the table still
+        BallState s = world.state;
+        for (int i = 0; i < s.count; i++) {
+            s.vx[i] = 0;
+            s.vy[i] = 0;
+        }
+        world.velocitiesChanged();
+        world.checkShotEnded();
+    }
+
+    private String placeCueBall(Game game, String id, double x, double y) {
+        World world = game.world;
+
+        synchronized (game) {
+            checkNotOver(world);
+            if (!world.isWhiteBallInHole()) {
+                throw new IllegalStateException("the cue ball is on the table");
+            }
+            if (!world.placeWhiteBall(x, y)) {
+                throw new IllegalArgumentException("cannot place the cue ball at " + x + " " + y);
+            }
+            world.placeWhiteBallAt(x, y);
+            return "ok " + id;
+        }
+    }
+
+    private String state(Game game, String id) {
+        World world = game.world;
+        StringBuilder reply = new StringBuilder("ok ").append(id);
+
+        synchronized (game) {
+            reply.append(" player ").append(world.redPlayer ? "red" : "blue");
+            BallState s = world.state;
+
+            for (int i = 0; i < s.count; i++) {
+
+                if (s.isPocketed(i)) {
+                    reply.append(" -");
+                } else {
+                    reply.append(' ').append(s.x[i]).append(' ').append(s.y[i]);
+                }
+            }
+            if (world.resultMessage != null) {
+                reply.append(" over ").append(world.resultMessage.trim());
+            }
+        }
+        return reply.toString();
+    }
+
+    /**
+     * java com.biljardspel.GameServer [port]
+     */
+    public static void main(String[] args) throws IOException {
+        GameServer server = new GameServer(args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT);
+        System.out.println("Serving games on port " + server.port());
+        server.serve();
+    }
+}
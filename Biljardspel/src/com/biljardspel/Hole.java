@@ -0,0 +1,117 @@
+package com.biljardspel;
+
+import java.awt.*;
+
+/**
+ * ****************************************************************************************
+ * Hole
+ * <p>
+ * A hole has a shape, which decides how it is painted and which region of the table
+ * it captures balls from. The region is worked out once when the hole is made, so
+ * testing whether a ball falls in is a bounding box test and, for the round corner
+ * holes, one squared distance.
+ */
+class Hole {
+        static final double HOLE_DIAMETER = 50;
+        static final double HOLE_RADIUS = 25;
+
+        static final byte CORNER = 0;           // shapes
+        static final byte LEFT_SIDE = 1;
+        static final byte RIGHT_SIDE = 2;
+
+        Color COLOR_HOLES = Color.BLACK;
+        final byte shape;
+        Coord holePosition;
+        double holeCenterX;
+        double holeCenterY;
+        Coord centerHole;
+
+        final double captureMinX;               // a ball whose centre is in this box may fall in
+        final double captureMaxX;
+        final double captureMinY;
+        final double captureMaxY;
+        final double captureRadius;             // and for a corner hole it must also be this close to the centre
+        private final double captureRadiusSquared;
+
+    Hole(Coord initialPosition, byte shape) {
+        this.shape = shape;
+        holePosition = initialPosition;
+        holeCenterX = holePosition.x + HOLE_RADIUS;
+        holeCenterY = holePosition.y + HOLE_RADIUS;
+        centerHole = new Coord(holeCenterX, holeCenterY);
+
+        double sideReach = Ball.RADIUS + Ball.BORDER_THICKNESS;
+        double cornerReach = Ball.RADIUS + HOLE_RADIUS;
+
+        if (shape == CORNER) {
+            captureMinX = holeCenterX - cornerReach;
+            captureMaxX = holeCenterX + cornerReach;
+            captureMinY = holeCenterY - cornerReach;
+            captureMaxY = holeCenterY + cornerReach;
+        } else {
+            captureMinX = shape == LEFT_SIDE ? Double.NEGATIVE_INFINITY : holeCenterX - sideReach;
+            captureMaxX = shape == LEFT_SIDE ? holeCenterX + sideReach : Double.POSITIVE_INFINITY;
+            captureMinY = holeCenterY - HOLE_RADIUS;
+            captureMaxY = holeCenterY + HOLE_RADIUS;
+        }
+        captureRadius = cornerReach;
+        captureRadiusSquared = cornerReach * cornerReach;
+    }
+
+    boolean captures(double x, double y) {
+        if (x < captureMinX || x > captureMaxX || y < captureMinY || y > captureMaxY) {
+            return false;
+        }
+
+        if (shape == CORNER) {
+            double dx = x - holeCenterX;
+            double dy = y - holeCenterY;
+            return dx * dx + dy * dy <= captureRadiusSquared;
+        }
+        return true;
+    }
+
+    void paintHole(Graphics2D graphics) {
+        if (shape == LEFT_SIDE) {
+            paintLeftSideHole(graphics);
+        } else if (shape == RIGHT_SIDE) {
+            paintRightSideHole(graphics);
+        } else {
+            paintCornerHoles(graphics);
+        }
+    }
+
+    public void paintLeftSideHole(Graphics2D graphics) {
+        Graphics2D g2D = graphics;
+        g2D.setColor(COLOR_HOLES);
+        g2D.fillArc(
+                (int) (holePosition.x),
+                (int) (holePosition.y),
+                (int) (HOLE_DIAMETER),
+                (int) (HOLE_DIAMETER),
+                (int) (90),
+                (int) (180));
+    }
+
+    public void paintRightSideHole(Graphics2D graphics) {
+        Graphics2D g2D = graphics;
+        g2D.setColor(COLOR_HOLES);
+        g2D.fillArc(
+                (int) (holePosition.x),
+                (int) (holePosition.y),
+                (int) (HOLE_DIAMETER),
+                (int) (HOLE_DIAMETER),
+                (int) (270),
+                (int) (180));
+    }
+
+    public void paintCornerHoles(Graphics2D graphics) {
+        Graphics2D g2D = graphics;
+        g2D.setColor(COLOR_HOLES);
+        g2D.fillOval(
+                (int) (holePosition.x),
+                (int) (holePosition.y),
+                (int) (HOLE_DIAMETER),
+                (int) (HOLE_DIAMETER));
+    }
+}
@@ -0,0 +1,157 @@
+package com.biljardspel;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * ****************************************************************************************
+ * Metrics
+ * <p>
+ * Measurements of the simulation and the painting, collected when the game runs
+ * with -Dbiljard.metrics=true: how long steps and repaints take, collisions and
+ * balls on the table per step, steps per shot, how late the timers fire and,
+ * with an ActiveRenderer, the time between the frames it shows.
+ * Each measurement goes into a histogram here and into a JFR event, so it shows
+ * both in the debug overlay (-Dbiljard.overlay=true) and in a flight recording.
+ * The steps and shots are those of the world a SimulationLoop runs, the one on
+ * the screen; worlds stepped to search, estimate or preview a shot are left out.
+ * <p>
+ * ENABLED is a constant, so with metrics off the JIT removes every measuring
+ * branch and nothing is left of them in the hot paths.
+ */
+class Metrics {
+
+    static final boolean ENABLED = Boolean.getBoolean("biljard.metrics");
+    static final boolean OVERLAY = ENABLED && Boolean.getBoolean("biljard.overlay");
+
+    static final LatencyHistogram STEP_NANOS = new LatencyHistogram();
+    static final LatencyHistogram COLLISIONS_PER_STEP = new LatencyHistogram();  // counts, not durations
+    static final LatencyHistogram ACTIVE_BALLS = new LatencyHistogram();
+    static final LatencyHistogram STEPS_PER_SHOT = new LatencyHistogram();
+    static final LatencyHistogram PAINT_NANOS = new LatencyHistogram();
+    static final LatencyHistogram FRAME_LATENESS_NANOS = new LatencyHistogram();
+    static final LatencyHistogram STEP_LATENESS_NANOS = new LatencyHistogram();
+    static final LatencyHistogram FRAME_NANOS = new LatencyHistogram();     // between frames shown by an ActiveRenderer
+
+    private static final String[] NAMES = {
+            "step us", "collisions/step", "balls on table", "steps/shot",
+            "paint us", "frame late us", "step late us", "frame us"};
+    private static final LatencyHistogram[] HISTOGRAMS = {
+            STEP_NANOS, COLLISIONS_PER_STEP, ACTIVE_BALLS, STEPS_PER_SHOT,
+            PAINT_NANOS, FRAME_LATENESS_NANOS, STEP_LATENESS_NANOS, FRAME_NANOS};
+    private static final boolean[] IN_NANOS = {true, false, false, false, true, true, true, true};
+
+    private Metrics() { }
+
+    @Name("com.biljardspel.Step")
+    @Label("Simulation Step")
+    @Category("Biljard")
+    static class StepEvent extends Event {
+        @Label("Balls on Table")
+        int activeBalls;
+
+        @Label("Collisions")
+        int collisions;
+
+        @Label("Sub-steps")
+        int substeps;
+    }
+
+    @Name("com.biljardspel.Shot")
+    @Label("Shot Resolved")
+    @Category("Biljard")
+    static class ShotEvent extends Event {
+        @Label("Steps")
+        long steps;
+    }
+
+    @Name("com.biljardspel.Paint")
+    @Label("Table Repaint")
+    @Category("Biljard")
+    static class PaintEvent extends Event {
+        @Label("Dirty Pixels")
+        int pixels;
+    }
+
+    @Name("com.biljardspel.TimerLateness")
+    @Label("Timer Lateness")
+    @Category("Biljard")
+    static class LatenessEvent extends Event {
+        @Label("Timer")
+        String timer;
+
+        @Label("Lateness")
+        @Timespan(Timespan.NANOSECONDS)
+        long lateness;
+    }
+
+    static void stepped(World world, long nanos, StepEvent event) {
+        STEP_NANOS.record(nanos);
+        COLLISIONS_PER_STEP.record(world.collisions);
+        ACTIVE_BALLS.record(world.activeCount());
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.activeBalls = world.activeCount();
+            event.collisions = world.collisions;
+            event.substeps = world.substeps;
+            event.commit();
+        }
+    }
+
+    static void shotResolved(long steps) {
+        STEPS_PER_SHOT.record(steps);
+
+        ShotEvent event = new ShotEvent();
+        if (event.shouldCommit()) {
+            event.steps = steps;
+            event.commit();
+        }
+    }
+
+    static void painted(long nanos, int pixels, PaintEvent event) {
+        PAINT_NANOS.record(nanos);
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.pixels = pixels;
+            event.commit();
+        }
+    }
+
+    static void late(LatencyHistogram histogram, String timer, long nanos) {
+        histogram.record(nanos);
+
+        LatenessEvent event = new LatenessEvent();
+        if (event.shouldCommit()) {
+            event.timer = timer;
+            event.lateness = nanos;
+            event.commit();
+        }
+    }
+
+    static List<String> lines() {               // one line per histogram, for the overlay and the report
+        List<String> lines = new ArrayList<>();
+
+        for (int k = 0; k < HISTOGRAMS.length; k++) {
+            LatencyHistogram h = HISTOGRAMS[k];
+            long scale = IN_NANOS[k] ? 1000 : 1;
+            lines.add(String.format("%-16s p50 %6d  p99 %6d  max %6d  (%d)", NAMES[k],
+                    h.percentile(0.5) / scale, h.percentile(0.99) / scale, h.percentile(1) / scale, h.count()));
+        }
+        return lines;
+    }
+
+    static void report(PrintStream out) {
+        for (String line : lines()) {
+            out.println(line);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.biljardspel;
+
+/**
+ * ****************************************************************************************
+ * MotionKernel
+ * <p>
+ * Moves a whole range of balls one (sub-)step at once: every ball that is moving
+ * rolls on, slows down by the friction and bounces off the walls, as
+ * Physics.integrate() and Physics.bounceWalls() do for one ball. Balls at rest,
+ * those that have fallen in among them, are left alone. The deterministic step
+ * moves all its balls before it looks at any contact, so it can hand them to a
+ * kernel in one go; the ordinary step moves one ball and resolves its contacts
+ * before the next, and does not use one.
+ * <p>
+ * A kernel must give the same bits as the scalar physics, so that a world steps
+ * the same with or without it. SCALAR is the plain loop. load() finds the SIMD
+ * kernel, VectorMotionKernel in the biljardspel-vector module, which needs the
+ * incubating jdk.incubator.vector module (java --add-modules
+ * jdk.incubator.vector); it is looked up by name, so this module runs without it
+ * and without that flag, and then load() gives null.
+ */
+interface MotionKernel {
+
+    String VECTOR_CLASS = "com.biljardspel.VectorMotionKernel";
+
+    MotionKernel SCALAR = (s, t, dt, from, to) -> {
+        for (int i = from; i < to; i++) {
+
+            if (Physics.isMoving(s, i)) {
+                Physics.integrate(s, i, dt);
+                Physics.bounceWalls(t, s, i);
+            }
+        }
+    };
+
+    void move(BallState s, TableGeometry t, double dt, int from, int to);   // balls from up to but not including to
+
+    /**
+     * The SIMD kernel if it is on the class path and the Vector API is there, else
+     * null. -Dbiljard.vector=false leaves it out.
+     */
+    static MotionKernel load() {
+        if (!Boolean.parseBoolean(System.getProperty("biljard.vector", "true"))) {
+            return null;
+        }
+
+        try {
+            return (MotionKernel) Class.forName(VECTOR_CLASS).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {   // not there, or jdk.incubator.vector not added
+            return null;
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.biljardspel;
+
+/**
+ * ****************************************************************************************
+ * Physics
+ * <p>
+ * The physics of a single simulation step, working directly on the arrays of a
+ * BallState. Nothing here allocates: vectors are handled as separate x and y
+ * doubles, and distances are compared squared wherever a square root can be avoided.
+ */
+class Physics {
+
+    static final double FRICTION =                                 // its friction constant (normed for 100 updates/second)
+            Double.parseDouble(System.getProperty("biljard.friction", "0.015"));
+    static final double STEP = 100.0 / Biljard.UPDATE_FREQUENCY;   // the length of a step, in hundredths of a second
+    static final double FRICTION_PER_UPDATE =                      // friction applied each simulation step: speeds are
+            FRICTION * STEP * STEP;                                // per step, so the slowdown goes with the step squared
+
+    private static final double CONTACT_DISTANCE_SQUARED = Ball.DIAMETER * Ball.DIAMETER;
+
+    static boolean isMoving(BallState s, int i) {
+        return s.vx[i] * s.vx[i] + s.vy[i] * s.vy[i] > FRICTION_PER_UPDATE * FRICTION_PER_UPDATE;
+    }
+
+    static void integrate(BallState s, int i, double dt) { // move dt of a step and slow down along the velocity
+        double vx = s.vx[i];
+        double vy = s.vy[i];
+        s.x[i] += vx * dt;
+        s.y[i] += vy * dt;
+
+        double k = FRICTION_PER_UPDATE * dt / Math.sqrt(vx * vx + vy * vy);
+        s.vx[i] = vx - k * vx;
+        s.vy[i] = vy - k * vy;
+    }
+
+    static void bounceWalls(TableGeometry t, BallState s, int i) {
+        double x = s.x[i];
+        double vx = s.vx[i];
+        if ((x >= t.maxX && vx >= 0) || (x <= t.minX && vx <= 0)) {
+            s.vx[i] = -vx;
+        }
+
+        double y = s.y[i];
+        double vy = s.vy[i];
+        if ((y >= t.maxY && vy >= 0) || (y <= t.minY && vy <= 0)) {
+            s.vy[i] = -vy;
+        }
+    }
+
+    static boolean touching(BallState s, int i, int j) {
+        double dx = s.x[i] - s.x[j];
+        double dy = s.y[i] - s.y[j];
+        return dx * dx + dy * dy <= CONTACT_DISTANCE_SQUARED;
+    }
+
+    /**
+     * Elastic collision between two balls of equal mass: the velocity components
+     * along the line between the centres are exchanged. Nothing happens if the
+     * balls are already moving apart. Returns whether they collided.
+     */
+    static boolean ballsHit(BallState s, int i, int j) {
+        double px = s.x[i] - s.x[j];
+        double py = s.y[i] - s.y[j];
+        double distanceBeforeSquared = px * px + py * py;
+
+        double relVx = s.vx[i] - s.vx[j];
+        double relVy = s.vy[i] - s.vy[j];
+        double afterX = px + relVx;
+        double afterY = py + relVy;
+
+        if (distanceBeforeSquared > afterX * afterX + afterY * afterY) {
+            double distance = Math.sqrt(distanceBeforeSquared);
+            double dx = px / distance;
+            double dy = py / distance;
+            double J = -(relVx * dx + relVy * dy);
+
+            s.vx[i] += J * dx;
+            s.vy[i] += J * dy;
+            s.vx[j] -= J * dx;
+            s.vy[j] -= J * dy;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * The same collision, but the changes of velocity are added to dvx and dvy
+     * instead of to the velocities, so that any number of contacts can be worked
+     * out from the same velocities.
+     */
+    static boolean addHit(BallState s, int i, int j, double[] dvx, double[] dvy) {
+        double px = s.x[i] - s.x[j];
+        double py = s.y[i] - s.y[j];
+        double distanceBeforeSquared = px * px + py * py;
+
+        double relVx = s.vx[i] - s.vx[j];
+        double relVy = s.vy[i] - s.vy[j];
+        double afterX = px + relVx;
+        double afterY = py + relVy;
+
+        if (distanceBeforeSquared > afterX * afterX + afterY * afterY) {
+            double distance = Math.sqrt(distanceBeforeSquared);
+            double dx = px / distance;
+            double dy = py / distance;
+            double J = -(relVx * dx + relVy * dy);
+
+            dvx[i] += J * dx;
+            dvy[i] += J * dy;
+            dvx[j] -= J * dx;
+            dvy[j] -= J * dy;
+            return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,118 @@
+package com.biljardspel;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * ****************************************************************************************
+ * PhysicsEventQueue
+ * <p>
+ * What the physics tells the rules: a shot was played, the white ball touched
+ * its first ball, a ball fell into hole k, the white ball fell in (a scratch) or
+ * the shot is over. Each event has its type, a ball, another number (the ball
+ * touched or the hole) and the step it happened at.
+ * <p>
+ * The queue is a ring buffer of parallel primitive arrays for one producer and
+ * one consumer, without locks: the producer writes an event and then publishes
+ * it by moving the tail with a release store; the consumer reads the tail with
+ * an acquire load, so it sees every event up to there complete, and hands the
+ * slots back by moving the head the same way. Neither side allocates. The
+ * producer and consumer may be on different threads, but each only on one.
+ */
+class PhysicsEventQueue {
+
+    static final byte SHOT = 0;                 // types; ball 0, other unused
+    static final byte FIRST_CONTACT = 1;        // ball 0 touched ball other
+    static final byte POCKETED = 2;             // ball fell into hole other
+    static final byte SCRATCH = 3;              // the white ball fell into hole other
+    static final byte SHOT_ENDED = 4;           // every ball has stopped
+
+    static final String[] NAMES = {"shot", "firstContact", "pocketed", "scratch", "shotEnded"};
+
+    /**
+     * Receives the events drained from a queue.
+     */
+    interface Listener {
+        void event(byte type, int ball, int other, long step);
+    }
+
+    private static final VarHandle HEAD;
+    private static final VarHandle TAIL;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            HEAD = lookup.findVarHandle(PhysicsEventQueue.class, "head", long.class);
+            TAIL = lookup.findVarHandle(PhysicsEventQueue.class, "tail", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final int mask;
+    private final byte[] type;
+    private final int[] ball;
+    private final int[] other;
+    private final long[] step;
+
+    @SuppressWarnings("unused")                 // through HEAD and TAIL
+    private long head;                          // the next event to read
+    @SuppressWarnings("unused")
+    private long tail;                          // the next slot to write
+
+    PhysicsEventQueue(int capacity) {           // rounded up to a power of two
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        mask = size - 1;
+        type = new byte[size];
+        ball = new int[size];
+        other = new int[size];
+        step = new long[size];
+    }
+
+    int capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * Adds an event, from the producer. Returns false, and adds nothing, if the
+     * queue is full.
+     */
+    boolean offer(byte eventType, int eventBall, int eventOther, long eventStep) {
+        long t = (long) TAIL.getOpaque(this);
+        if (t - (long) HEAD.getAcquire(this) > mask) {
+            return false;
+        }
+
+        int k = (int) t & mask;
+        type[k] = eventType;
+        ball[k] = eventBall;
+        other[k] = eventOther;
+        step[k] = eventStep;
+        TAIL.setRelease(this, t + 1);
+        return true;
+    }
+
+    /**
+     * Hands every event published so far to the listener, in order, from the
+     * consumer. Returns how many there were.
+     */
+    int drain(Listener listener) {
+        long h = (long) HEAD.getOpaque(this);
+        long t = (long) TAIL.getAcquire(this);
+
+        for (long e = h; e < t; e++) {
+            int k = (int) e & mask;
+            listener.event(type[k], ball[k], other[k], step[k]);
+        }
+        HEAD.setRelease(this, t);
+        return (int) (t - h);
+    }
+
+    boolean isEmpty() {
+        return (long) HEAD.getAcquire(this) == (long) TAIL.getAcquire(this);
+    }
+
+    void clear() {                              // from the consumer, when nobody is producing
+        HEAD.setRelease(this, (long) TAIL.getAcquire(this));
+    }
+}
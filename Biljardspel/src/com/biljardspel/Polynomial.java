@@ -0,0 +1,141 @@
+package com.biljardspel;
+
+/**
+ * ****************************************************************************************
+ * Polynomial
+ * <p>
+ * Utility methods for the real roots of polynomials of low degree, used to find the
+ * moment of the next event in the EventSimulation. A polynomial is an array of
+ * coefficients c where c[k] belongs to t^k. Roots of degree three and four are
+ * isolated between the roots of the derivative and then found by bisection, which
+ * is slower than a closed formula but never misses a root.
+ * <p>
+ * The derivatives and their roots are kept in a scratch array the caller passes
+ * in, as roots are searched for once per pair of balls for every event, so that
+ * solving allocates nothing.
+ */
+class Polynomial {
+
+    private static final int BISECTIONS = 64;
+
+    static double evaluate(double[] c, int degree, double t) {
+        return evaluate(c, 0, degree, t);
+    }
+
+    private static double evaluate(double[] c, int from, int degree, double t) {   // coefficients from c[from] on
+        double value = c[from + degree];
+        for (int k = degree - 1; k >= 0; k--) {
+            value = value * t + c[from + k];
+        }
+        return value;
+    }
+
+    static double derivative(double[] c, int degree, double t) {
+        double value = degree * c[degree];
+        for (int k = degree - 1; k >= 1; k--) {
+            value = value * t + k * c[k];
+        }
+        return degree == 0 ? 0 : value;
+    }
+
+    static int scratchSize(int degree) {        // what roots() needs for a polynomial of this degree
+        return Math.max(0, degree * degree - 4);
+    }
+
+    /**
+     * Writes the real roots in [lo, hi] into out in increasing order and returns
+     * how many there are. out must have room for degree roots and scratch for
+     * scratchSize(degree) doubles.
+     */
+    static int roots(double[] c, int degree, double lo, double hi, double[] out, double[] scratch) {
+        return roots(c, 0, degree, lo, hi, out, 0, scratch, 0);
+    }
+
+    private static int roots(double[] c, int from, int degree, double lo, double hi,
+                             double[] out, int outFrom, double[] scratch, int free) {
+        double scale = 0;
+        for (int k = 0; k <= degree; k++) {
+            scale = Math.max(scale, Math.abs(c[from + k]));
+        }
+
+        while (degree > 0 && Math.abs(c[from + degree]) <= 1e-14 * scale) {
+            degree--;
+        }
+
+        if (degree == 0) {
+            return 0;
+        }
+
+        if (degree == 1) {
+            return keep(-c[from] / c[from + 1], lo, hi, out, outFrom, 0);
+        }
+
+        if (degree == 2) {
+            double a = c[from + 2], b = c[from + 1], cc = c[from];
+            double discriminant = b * b - 4 * a * cc;
+
+            if (discriminant < 0) {
+                return 0;
+            }
+            double q = -0.5 * (b + Math.copySign(Math.sqrt(discriminant), b));   // the stable form of the formula
+            double r1 = q / a;
+            double r2 = q != 0 ? cc / q : r1;
+            int n = keep(Math.min(r1, r2), lo, hi, out, outFrom, 0);
+            return r1 != r2 ? keep(Math.max(r1, r2), lo, hi, out, outFrom, n) : n;
+        }
+
+        int d = free;                           // the derivative, then its roots, then room for theirs
+        int critical = d + degree;
+        for (int k = 1; k <= degree; k++) {
+            scratch[d + k - 1] = k * c[from + k];
+        }
+        int criticalCount = roots(scratch, d, degree - 1, lo, hi, scratch, critical, scratch, critical + degree - 1);
+
+        int n = 0;
+        double a = lo;
+        double fa = evaluate(c, from, degree, a);
+        for (int k = 0; k <= criticalCount; k++) {
+            double b = k < criticalCount ? scratch[critical + k] : hi;
+            double fb = evaluate(c, from, degree, b);
+
+            if (fa == 0) {
+                n = keep(a, lo, hi, out, outFrom, n);
+            } else if ((fa < 0) != (fb < 0) && fb != 0) {
+                n = keep(bisect(c, from, degree, a, b, fa), lo, hi, out, outFrom, n);
+            }
+            a = b;
+            fa = fb;
+        }
+
+        if (fa == 0) {
+            n = keep(a, lo, hi, out, outFrom, n);
+        }
+        return n;
+    }
+
+    private static double bisect(double[] c, int from, int degree, double a, double b, double fa) {
+        for (int k = 0; k < BISECTIONS && a < b; k++) {
+            double m = 0.5 * (a + b);
+            double fm = evaluate(c, from, degree, m);
+
+            if (fm == 0 || m == a || m == b) {
+                return m;
+            }
+
+            if ((fm < 0) == (fa < 0)) {
+                a = m;
+                fa = fm;
+            } else {
+                b = m;
+            }
+        }
+        return 0.5 * (a + b);
+    }
+
+    private static int keep(double root, double lo, double hi, double[] out, int from, int n) {
+        if (root >= lo && root <= hi && (n == 0 || root > out[from + n - 1])) {
+            out[from + n++] = root;
+        }
+        return n;
+    }
+}
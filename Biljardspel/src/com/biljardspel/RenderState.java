@@ -0,0 +1,72 @@
+package com.biljardspel;
+
+/**
+ * ****************************************************************************************
+ * RenderState
+ * <p>
+ * What the table needs to paint one state of a world: where the balls are and
+ * the score. The simulation thread copies its world into one of these after
+ * each step, so the painting never looks at a world that is being simulated.
+ */
+class RenderState {
+
+    final int count;
+    final double[] x;
+    final double[] y;
+    final byte[] status;
+    final byte[] kind;
+
+    boolean redPlayer;
+    int redBallNumber;
+    int blueBallNumber;
+    boolean atRest;                             // every ball has stopped
+    boolean whiteBallInHole;
+    boolean gameOver;                           // the black ball is down
+    long commands;                              // the number of commands the world had run
+    long nanos;                                 // the real time of the step this is the state after
+
+    RenderState(int count) {
+        this.count = count;
+        x = new double[count];
+        y = new double[count];
+        status = new byte[count];
+        kind = new byte[count];
+    }
+
+    void capture(World world, long commands, long nanos) {
+        BallState s = world.state;
+        System.arraycopy(s.x, 0, x, 0, count);
+        System.arraycopy(s.y, 0, y, 0, count);
+        System.arraycopy(s.status, 0, status, 0, count);
+        System.arraycopy(s.kind, 0, kind, 0, count);
+
+        redPlayer = world.redPlayer;
+        redBallNumber = world.redBallNumber;
+        blueBallNumber = world.blueBallNumber;
+        atRest = world.allBallStopped();
+        whiteBallInHole = world.isWhiteBallInHole();
+        gameOver = world.rules.state == RulesEngine.GAME_OVER;
+        this.commands = commands;
+        this.nanos = nanos;
+    }
+
+    void copyFrom(RenderState other) {
+        System.arraycopy(other.x, 0, x, 0, count);
+        System.arraycopy(other.y, 0, y, 0, count);
+        System.arraycopy(other.status, 0, status, 0, count);
+        System.arraycopy(other.kind, 0, kind, 0, count);
+
+        redPlayer = other.redPlayer;
+        redBallNumber = other.redBallNumber;
+        blueBallNumber = other.blueBallNumber;
+        atRest = other.atRest;
+        whiteBallInHole = other.whiteBallInHole;
+        gameOver = other.gameOver;
+        commands = other.commands;
+        nanos = other.nanos;
+    }
+
+    boolean isPocketed(int i) {
+        return status[i] == BallState.POCKETED;
+    }
+}
@@ -0,0 +1,155 @@
+package com.biljardspel;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+
+/**
+ * ****************************************************************************************
+ * Replay
+ * <p>
+ * Simulates a recorded game again: the world is stepped up to the step at which
+ * each input came and the input is applied, so the game comes out exactly as it
+ * was played. Every KEYFRAME_INTERVAL inputs a WorldSnapshot of the world is kept
+ * on the way, and seek() starts from the nearest one instead of from the break.
+ * <p>
+ * Headless, next() and runToEnd() go as fast as the simulation can. To watch a
+ * replay at normal speed the table's SimulationLoop drives it, applying inputs
+ * through applyDue() as it steps.
+ */
+class Replay {
+
+    static final int KEYFRAME_INTERVAL = 8;    // inputs between keyframes
+
+    final GameRecord record;
+    final World world;
+    private final long[] keyframes;             // the snapshots, one after the other
+    private final boolean[] hasKeyframe;
+    private final int snapshotLongs;
+    private int position;                       // the inputs applied so far
+
+    Replay(GameRecord record) {
+        if (record.simulationHz != Biljard.UPDATE_FREQUENCY) {
+            throw new IllegalArgumentException("The game was recorded at " + record.simulationHz
+                    + " steps per second, this simulation runs at " + Biljard.UPDATE_FREQUENCY);
+        }
+        this.record = record;
+        world = record.newWorld();
+        snapshotLongs = WorldSnapshot.longs(record.ballCount);
+        keyframes = new long[(record.events / KEYFRAME_INTERVAL + 1) * snapshotLongs];
+        hasKeyframe = new boolean[record.events / KEYFRAME_INTERVAL + 1];
+        WorldSnapshot.write(world, keyframes, 0);
+        hasKeyframe[0] = true;
+    }
+
+    int position() {
+        return position;
+    }
+
+    boolean hasNext() {
+        return position < record.events;
+    }
+
+    long nextStep() {                           // the step at which the next input comes
+        return record.step[position];
+    }
+
+    /**
+     * Applies the inputs that are due at the step the world has reached.
+     */
+    void applyDue() {
+        while (hasNext() && record.step[position] <= world.stepCount) {
+            apply();
+        }
+    }
+
+    /**
+     * Simulates up to the next input and applies it.
+     */
+    void next() {
+        while (world.stepCount < record.step[position]) {
+            world.step();
+        }
+        apply();
+    }
+
+    void runToEnd() {
+        while (hasNext()) {
+            next();
+        }
+        world.runUntilRest(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Puts the world where it was just before the given input, eg seek(39) for the
+     * moment of the fortieth shot.
+     */
+    void seek(int event) {
+        int keyframe = Math.min(event, record.events) / KEYFRAME_INTERVAL;
+        while (!hasKeyframe[keyframe]) {
+            keyframe--;
+        }
+
+        if (event < position || keyframe * KEYFRAME_INTERVAL > position) {
+            WorldSnapshot.read(world, keyframes, keyframe * snapshotLongs);
+            position = keyframe * KEYFRAME_INTERVAL;
+        }
+
+        while (position < event && hasNext()) {
+            next();
+        }
+        if (hasNext()) {
+            while (world.stepCount < record.step[position]) {
+                world.step();
+            }
+        }
+    }
+
+    private void apply() {
+        int keyframe = position / KEYFRAME_INTERVAL;
+        if (position % KEYFRAME_INTERVAL == 0 && !hasKeyframe[keyframe]) {
+            WorldSnapshot.write(world, keyframes, keyframe * snapshotLongs);
+            hasKeyframe[keyframe] = true;
+        }
+
+        double a = record.a[position];
+        double b = record.b[position];
+        if (record.type[position] == GameRecord.SHOT) {
+            world.shoot(a, b);
+        } else {
+            world.placeWhiteBallAt(a, b);
+        }
+        position++;
+    }
+
+    /**
+     * Replays every game of a log as fast as possible and prints how each ended.
+     * <p>
+     * java com.biljardspel.Replay games.bjr
+     */
+    public static void main(String[] args) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(args[0])))) {
+            long start = System.nanoTime();
+            int games = 0;
+            long steps = 0;
+            GameRecord record;
+
+            while ((record = GameRecord.read(in)) != null) {
+                Replay replay = new Replay(record);
+                replay.runToEnd();
+                World world = replay.world;
+
+                System.out.println("game " + games + ": " + record.events + " inputs, " + world.stepCount
+                        + " steps, red " + world.redBallNumber + ", blue " + world.blueBallNumber
+                        + ", checksum " + Long.toHexString(world.checksum())
+                        + (world.resultMessage != null ? ", " + world.resultMessage.trim() : ""));
+                games++;
+                steps += world.stepCount;
+            }
+
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("%d games, %d steps in %.2f s%n", games, steps, seconds);
+        }
+    }
+}
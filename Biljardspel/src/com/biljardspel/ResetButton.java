@@ -0,0 +1,20 @@
+package com.biljardspel;
+
+import javax.swing.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+
+class ResetButton extends JButton implements ActionListener{
+    Table myTable;
+    String label = "Reset Game";
+
+    ResetButton(Table table) {
+        myTable = table;
+        addActionListener(this);
+        this.setText(label);
+    }
+
+    public void actionPerformed(ActionEvent e) {
+        myTable.reset();
+    }
+}
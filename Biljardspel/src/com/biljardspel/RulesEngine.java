@@ -0,0 +1,170 @@
+package com.biljardspel;
+
+/**
+ * ****************************************************************************************
+ * RulesEngine
+ * <p>
+ * The rules of the game, as a state machine fed by the events of the physics.
+ * The physics only takes balls off the table and says what happened; the world
+ * drains its PhysicsEventQueue into the rules at the end of every step. While
+ * the balls roll the rules only keep count of what the shot has done, the balls
+ * of each colour sunk, the black ball, a scratch and the first ball touched;
+ * when its SHOT_ENDED comes they decide the shot once: the score, whether it
+ * was a foul, whose turn it is and whether the game is over.
+ * <p>
+ * The shooter keeps the turn after sinking a ball of their own colour without
+ * a foul, else it passes; sinking the black ball ends the game, won if the
+ * shooter had sunk all seven of their own. The rules keep their score in the
+ * world's fields (redPlayer, redBallNumber and so on), where the table, the
+ * snapshots and the checksum read it; what is only known to the rules is the
+ * state and what the shot rolling has done.
+ */
+class RulesEngine implements PhysicsEventQueue.Listener {
+
+    static final byte READY = 0;                // states: waiting for a shot
+    static final byte ROLLING = 1;
+    static final byte GAME_OVER = 2;
+
+    static final byte NO_CONTACT = -1;
+
+    private final World world;
+    byte state = READY;
+    byte firstContactKind = NO_CONTACT;         // of the first ball the white ball touched this shot
+    boolean scratch;                            // the white ball fell in this shot
+    boolean foul;                               // the last shot ended in a scratch or touched nothing
+    int redSunk;                                // this shot, not yet in the score
+    int blueSunk;
+    boolean blackSunk;
+
+    RulesEngine(World world) {
+        this.world = world;
+    }
+
+    void reset() {
+        state = READY;
+        firstContactKind = NO_CONTACT;
+        scratch = false;
+        foul = false;
+        redSunk = 0;
+        blueSunk = 0;
+        blackSunk = false;
+    }
+
+    void copyFrom(RulesEngine other) {
+        state = other.state;
+        firstContactKind = other.firstContactKind;
+        scratch = other.scratch;
+        foul = other.foul;
+        redSunk = other.redSunk;
+        blueSunk = other.blueSunk;
+        blackSunk = other.blackSunk;
+    }
+
+    /**
+     * Works out what the shot rolling has sunk so far from the balls off the table
+     * and the score, after the world was read from a snapshot, which has no room
+     * for it. The events up to then have all been drained, so the two agree.
+     */
+    void recount() {
+        BallState s = world.state;
+        redSunk = -world.redBallNumber;
+        blueSunk = -world.blueBallNumber;
+        blackSunk = false;
+
+        for (int i = 0; i < s.count; i++) {
+
+            if (s.isPocketed(i)) {
+                pocketed(s.kind[i]);
+            }
+        }
+        blackSunk &= state != GAME_OVER;        // that game was decided
+    }
+
+    boolean wantsFirstContact() {               // so that the physics need not report every later contact
+        return state == ROLLING && firstContactKind == NO_CONTACT;
+    }
+
+    public void event(byte type, int ball, int other, long step) {
+        switch (type) {
+            case PhysicsEventQueue.SHOT:
+                if (state != GAME_OVER) {
+                    state = ROLLING;
+                }
+                firstContactKind = NO_CONTACT;
+                scratch = false;
+                redSunk = 0;
+                blueSunk = 0;
+                blackSunk = false;
+                break;
+            case PhysicsEventQueue.FIRST_CONTACT:
+                if (firstContactKind == NO_CONTACT) {
+                    firstContactKind = world.state.kind[other];
+                }
+                break;
+            case PhysicsEventQueue.POCKETED:
+                pocketed(world.state.kind[ball]);
+                break;
+            case PhysicsEventQueue.SCRATCH:
+                scratch = true;
+                break;
+            case PhysicsEventQueue.SHOT_ENDED:
+                shotEnded();
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown physics event " + type);
+        }
+    }
+
+    private void pocketed(byte kind) {
+        redSunk += kind == BallState.RED ? 1 : 0;
+        blueSunk += kind == BallState.BLUE ? 1 : 0;
+        blackSunk |= kind == BallState.BLACK;
+    }
+
+    private void shotEnded() {
+        World w = world;
+        boolean ownBall = w.redPlayer ? redSunk > 0 : blueSunk > 0;
+        w.redBallNumber += redSunk;
+        w.blueBallNumber += blueSunk;
+        foul = scratch || firstContactKind == NO_CONTACT;
+
+        if (blackSunk && state != GAME_OVER) {
+            blackBall();
+        }
+        if (state != GAME_OVER) {
+            state = READY;
+
+            if (foul || !ownBall) {
+                w.redPlayer = !w.redPlayer;
+            }
+        }
+        redSunk = 0;
+        blueSunk = 0;
+        blackSunk = false;
+    }
+
+    private void blackBall() {                  // the table shows the result, we only record it
+        World w = world;
+        state = GAME_OVER;
+
+        if (w.redPlayer && w.redBallNumber == 7) {
+            w.resultTitle = World.WINNER;
+            w.resultMessage = World.RESULT_MESSAGES[0];
+        }
+
+        if (w.redPlayer && w.redBallNumber != 7) {
+            w.resultTitle = World.LOSER;
+            w.resultMessage = World.RESULT_MESSAGES[1];
+        }
+
+        if (!w.redPlayer && w.blueBallNumber == 7) {
+            w.resultTitle = World.WINNER;
+            w.resultMessage = World.RESULT_MESSAGES[2];
+        }
+
+        if (!w.redPlayer && w.blueBallNumber != 7) {
+            w.resultTitle = World.LOSER;
+            w.resultMessage = World.RESULT_MESSAGES[3];
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.biljardspel;
+
+import java.util.SplittableRandom;
+
+/**
+ * ****************************************************************************************
+ * ScenarioGenerator
+ * <p>
+ * Lays out any number of balls on any table, for the benchmarks, soak tests and
+ * the large tables: a RACK, a triangle of balls in front of the white ball like
+ * the real rack; a SCATTER of balls put down one by one at random places where
+ * they touch no other ball; or a CLUSTER, balls packed touching each other over
+ * the upper part of the table, in layers over each other once it is full.
+ * <p>
+ * Everything random is drawn from a SplittableRandom with the given seed, so a
+ * scenario is the same every time. The generator only places the balls; the
+ * world gives them their kinds.
+ */
+class ScenarioGenerator {
+
+    static final byte RACK = 0;                 // kinds of scenario
+    static final byte SCATTER = 1;
+    static final byte CLUSTER = 2;
+
+    static final String[] NAMES = {"rack", "scatter", "cluster"};
+
+    static final int SCATTER_TRIES = 1000;      // per ball, before the table counts as full
+
+    final byte kind;
+    final long seed;
+
+    ScenarioGenerator(byte kind, long seed) {
+        if (kind < RACK || kind > CLUSTER) {
+            throw new IllegalArgumentException("Unknown scenario " + kind);
+        }
+        this.kind = kind;
+        this.seed = seed;
+    }
+
+    /**
+     * The scenario given by -Dbiljard.scenario=rack, scatter or cluster and
+     * -Dbiljard.seed, or null for the standard rack.
+     */
+    static ScenarioGenerator fromProperties() {
+        String name = System.getProperty("biljard.scenario");
+
+        if (name == null) {
+            return null;
+        }
+        return new ScenarioGenerator(kind(name), Long.getLong("biljard.seed", 42));
+    }
+
+    static byte kind(String name) {
+        for (byte k = 0; k < NAMES.length; k++) {
+
+            if (NAMES[k].equals(name)) {
+                return k;
+            }
+        }
+        throw new IllegalArgumentException("Unknown scenario " + name + ", should be rack, scatter or cluster");
+    }
+
+    static World world(TableGeometry table, int ballCount, byte kind, long seed) {
+        return new World(table, ballCount, new ScenarioGenerator(kind, seed));
+    }
+
+    void place(BallState s, TableGeometry table) {
+        if (kind == RACK) {
+            rack(s, table);
+        } else if (kind == SCATTER) {
+            scatter(s, table, seed);
+        } else {
+            cluster(s, table, seed);
+        }
+    }
+
+    /**
+     * The white ball three quarters down the table and then rows of one, two,
+     * three... balls above it, the apex a third of the way down, or lower if the
+     * rows would not fit above that.
+     */
+    static void rack(BallState s, TableGeometry table) {
+        double ballSize = Ball.DIAMETER;
+        double rowHeight = ballSize - 4;
+        int rows = 0;
+        while (rows * (rows + 1) / 2 < s.count - 1) {
+            rows++;
+        }
+
+        s.place(0, table.centerX, (table.centerY / 2) * 3);
+        double apexY = Math.max(table.centerY / 3 + 4 * ballSize - 16, table.minY + (rows - 1) * rowHeight);
+        int row = 0;
+        int inRow = 0;
+
+        for (int i = 1; i < s.count; i++) {
+            s.place(i, table.centerX + (inRow - row / 2.0) * ballSize, apexY - row * rowHeight);
+            inRow++;
+
+            if (inRow > row) {
+                row++;
+                inRow = 0;
+            }
+        }
+    }
+
+    /**
+     * Every ball, the white one too, at a random place where it touches neither the
+     * walls nor the balls placed before it. Throws IllegalArgumentException when a
+     * ball finds no room in SCATTER_TRIES tries, which happens once the balls
+     * cover about half the table.
+     */
+    static void scatter(BallState s, TableGeometry table, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        UniformGrid grid = new UniformGrid(s.count, table.outerWidth(), table.outerHeight());
+        int[] candidates = new int[s.count];
+
+        for (int i = 0; i < s.count; i++) {
+            int tries = 0;
+
+            do {
+                if (++tries > SCATTER_TRIES) {
+                    throw new IllegalArgumentException("No room for " + s.count + " balls on a " + table + " table");
+                }
+                s.place(i, random.nextDouble(table.minX, table.maxX), random.nextDouble(table.minY, table.maxY));
+            } while (touchesAny(s, grid.candidates(s, i, candidates), candidates, i));
+
+            grid.moved(s, i);
+        }
+    }
+
+    private static boolean touchesAny(BallState s, int n, int[] candidates, int i) {
+        for (int k = 0; k < n; k++) {
+
+            if (Physics.touching(s, i, candidates[k])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Packs the balls in a hexagonal cluster over the upper part of the table,
+     * touching each other. When the table is full the next layer is laid over the
+     * first one, shifted diagonally by less than a ball: a third and two thirds of
+     * one for the second and third layers, and in between those for the layers
+     * after, so that no two layers put balls in the same places and large counts
+     * are crowded rather than spread out. The white ball is left below the cluster.
+     */
+    static void cluster(BallState s, TableGeometry table, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        double rowHeight = Ball.DIAMETER * Math.sqrt(3) / 2;
+        double bottom = table.minY + 0.6 * (table.maxY - table.minY);
+        s.place(0, table.centerX, table.maxY - Ball.DIAMETER);
+
+        int layer = 0;
+        int row = 0;
+        double shift = 0;
+        double x = table.minX;
+        for (int i = 1; i < s.count; i++) {
+            double y = table.minY + row * rowHeight + shift;
+
+            if (x > table.maxX) {
+                row++;
+                x = table.minX + (row % 2) * Ball.RADIUS + shift;
+                y = table.minY + row * rowHeight + shift;
+            }
+
+            if (y > bottom) {
+                layer++;
+                row = 0;
+                shift = layerShift(layer);
+                x = table.minX + shift;
+                y = table.minY + shift;
+            }
+            s.place(i, x + 0.01 * random.nextDouble(), y + 0.01 * random.nextDouble());
+            x += Ball.DIAMETER;
+        }
+    }
+
+    private static double layerShift(int layer) {   // under a ball, and another for every layer
+        double golden = (layer / 3) * 0.6180339887498949 % 1;
+        return (layer % 3 + golden) * Ball.DIAMETER / 3;
+    }
+}
@@ -0,0 +1,41 @@
+package com.biljardspel;
+
+/**
+ * ****************************************************************************************
+ * Shot
+ * <p>
+ * A shot of the white ball, given as the direction it is sent in (an angle in
+ * radians, measured like Math.atan2) and its speed in pixels per hundredth of a
+ * second, which is a step at the standard 100 updates per second. vx() and vy()
+ * convert it to the step of the simulation. fromAim() turns the dragged aiming
+ * vector into a shot the same way the game always has: the speed grows with the
+ * square root of the drag distance. The angles go through StrictMath, which gives
+ * the same bits on every JVM, so a recorded or replayed shot is the same shot.
+ */
+class Shot {
+
+    final double angle;
+    final double speed;
+
+    Shot(double angle, double speed) {
+        this.angle = angle;
+        this.speed = speed;
+    }
+
+    static Shot fromAim(double aimX, double aimY) {     // aim is the vector from the aim position to the white ball
+        double distance = Math.sqrt(aimX * aimX + aimY * aimY);
+        return new Shot(StrictMath.atan2(aimY, aimX), Math.sqrt(35.0 * distance / 100));
+    }
+
+    double vx() {
+        return speed * Physics.STEP * StrictMath.cos(angle);
+    }
+
+    double vy() {
+        return speed * Physics.STEP * StrictMath.sin(angle);
+    }
+
+    public String toString() {
+        return "Shot(angle " + angle + ", speed " + speed + ")";
+    }
+}
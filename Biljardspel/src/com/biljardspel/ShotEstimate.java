@@ -0,0 +1,125 @@
+package com.biljardspel;
+
+/**
+ * ****************************************************************************************
+ * ShotEstimate
+ * <p>
+ * The result of a ShotEstimator: how often the intended ball was sunk, how often the
+ * white ball was, and where each ball ended up. Positions are averaged over the
+ * samples in which the ball stayed on the table. A Tally collects the counts of a
+ * batch of samples and can be merged with the tallies of other batches.
+ */
+class ShotEstimate {
+
+    final int samples;
+    final double potProbability;
+    final double potConfidence;                 // half the width of the 95% interval around potProbability
+    final double scratchProbability;
+    final double[] pocketedProbability;         // for each ball
+    final double[] meanX;                       // for each ball, where it stopped
+    final double[] meanY;
+    final double[] spread;                      // the root mean square distance from the mean position
+    final long elapsedNanos;
+
+    ShotEstimate(Tally tally, long elapsedNanos) {
+        int n = Math.max(1, tally.samples);
+        int balls = tally.pocketed.length;
+        samples = tally.samples;
+        potProbability = (double) tally.pots / n;
+        potConfidence = Tally.halfWidth(tally.pots, tally.samples);
+        scratchProbability = (double) tally.scratches / n;
+        pocketedProbability = new double[balls];
+        meanX = new double[balls];
+        meanY = new double[balls];
+        spread = new double[balls];
+        this.elapsedNanos = elapsedNanos;
+
+        for (int i = 0; i < balls; i++) {
+            pocketedProbability[i] = (double) tally.pocketed[i] / n;
+            int onTable = tally.samples - tally.pocketed[i];
+
+            if (onTable > 0) {
+                meanX[i] = tally.sumX[i] / onTable;
+                meanY[i] = tally.sumY[i] / onTable;
+                double variance = tally.sumSquares[i] / onTable - meanX[i] * meanX[i] - meanY[i] * meanY[i];
+                spread[i] = Math.sqrt(Math.max(0, variance));
+            } else {
+                meanX[i] = Double.NaN;
+                meanY[i] = Double.NaN;
+            }
+        }
+    }
+
+    public String toString() {
+        return String.format("pot %.3f (+-%.3f) scratch %.3f after %d samples in %.1f ms",
+                potProbability, potConfidence, scratchProbability, samples, elapsedNanos / 1e6);
+    }
+
+    static class Tally {
+        int samples;
+        int pots;
+        int scratches;
+        final int[] pocketed;
+        final double[] sumX;
+        final double[] sumY;
+        final double[] sumSquares;              // of x and y together
+
+        Tally(int balls) {
+            pocketed = new int[balls];
+            sumX = new double[balls];
+            sumY = new double[balls];
+            sumSquares = new double[balls];
+        }
+
+        void add(World world, int targetBall) {
+            BallState s = world.state;
+            samples++;
+
+            if (s.isPocketed(targetBall)) {
+                pots++;
+            }
+
+            if (s.isPocketed(0)) {
+                scratches++;
+            }
+
+            for (int i = 0; i < s.count; i++) {
+
+                if (s.isPocketed(i)) {
+                    pocketed[i]++;
+                } else {
+                    sumX[i] += s.x[i];
+                    sumY[i] += s.y[i];
+                    sumSquares[i] += s.x[i] * s.x[i] + s.y[i] * s.y[i];
+                }
+            }
+        }
+
+        void merge(Tally other) {
+            samples += other.samples;
+            pots += other.pots;
+            scratches += other.scratches;
+
+            for (int i = 0; i < pocketed.length; i++) {
+                pocketed[i] += other.pocketed[i];
+                sumX[i] += other.sumX[i];
+                sumY[i] += other.sumY[i];
+                sumSquares[i] += other.sumSquares[i];
+            }
+        }
+
+        /**
+         * Half the width of the Wilson score interval at 95% confidence, which
+         * behaves well even when nearly every or nearly no sample succeeds.
+         */
+        static double halfWidth(int successes, int n) {
+            if (n == 0) {
+                return 0.5;
+            }
+            double z = 1.96;
+            double p = (double) successes / n;
+            double denominator = 1 + z * z / n;
+            return z * Math.sqrt(p * (1 - p) / n + z * z / (4.0 * n * n)) / denominator;
+        }
+    }
+}
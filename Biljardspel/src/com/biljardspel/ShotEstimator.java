@@ -0,0 +1,102 @@
+package com.biljardspel;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * ****************************************************************************************
+ * ShotEstimator
+ * <p>
+ * Estimates how likely a shot is to sink a given ball when it is not played quite as
+ * intended. Each sample copies the world, disturbs the angle and speed of the shot
+ * with normally distributed noise and simulates it headlessly until every ball is
+ * at rest. Samples are run in batches on a ForkJoinPool, one batch per worker each
+ * round. After every round the estimate is returned if the time budget is used up
+ * or if the confidence interval of the pot probability is narrow enough.
+ */
+class ShotEstimator {
+
+    private static final int MAX_STEPS = 100000;   // a shot that has not stopped by then is cut short
+
+    double angleNoise = 0.01;                   // standard deviation in radians
+    double speedNoise = 0.03;                   // standard deviation as a fraction of the speed
+    long timeBudgetNanos = 50_000_000L;
+    int minSamples = 200;
+    int maxSamples = 100_000;
+    int batchSize = 32;
+    double targetConfidence = 0.02;             // stop when the pot probability is known to +-this
+    boolean eventDriven = false;                // resolve samples with an EventSimulation instead of stepping
+    long seed = 1;
+
+    private final ForkJoinPool pool;
+    private final ThreadLocal<World> scratch = new ThreadLocal<>();
+
+    ShotEstimator() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    ShotEstimator(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    ShotEstimate estimate(World world, Shot shot, int targetBall) {
+        long start = System.nanoTime();
+        long deadline = start + timeBudgetNanos;
+        World original = world.copy();         // the caller may go on changing its world meanwhile
+        ShotEstimate.Tally total = new ShotEstimate.Tally(world.state.count);
+        int parallelism = Math.max(1, pool.getParallelism());
+        int round = 0;
+
+        while (total.samples < maxSamples) {
+            List<ForkJoinTask<ShotEstimate.Tally>> batches = new ArrayList<>(parallelism);
+
+            for (int b = 0; b < parallelism; b++) {
+                long batchSeed = seed * 0x9E3779B97F4A7C15L + (long) round * parallelism + b;
+                batches.add(pool.submit(() -> runBatch(original, shot, targetBall, batchSeed, deadline)));
+            }
+
+            for (ForkJoinTask<ShotEstimate.Tally> batch : batches) {
+                total.merge(batch.join());
+            }
+            round++;
+
+            boolean outOfTime = System.nanoTime() >= deadline;
+            boolean confident = total.samples >= minSamples
+                    && ShotEstimate.Tally.halfWidth(total.pots, total.samples) <= targetConfidence;
+
+            if (outOfTime || confident) {
+                break;
+            }
+        }
+        return new ShotEstimate(total, System.nanoTime() - start);
+    }
+
+    private ShotEstimate.Tally runBatch(World original, Shot shot, int targetBall, long batchSeed, long deadline) {
+        SplittableRandom random = new SplittableRandom(batchSeed);
+        ShotEstimate.Tally tally = new ShotEstimate.Tally(original.state.count);
+        World world = scratch.get();
+
+        if (world == null || world.state.count != original.state.count || world.table != original.table) {
+            world = new World(original.table, original.state.count, null);
+            scratch.set(world);
+        }
+
+        for (int k = 0; k < batchSize && System.nanoTime() < deadline; k++) {
+            world.copyFrom(original);
+            double angle = shot.angle + angleNoise * random.nextGaussian();
+            double speed = Math.max(0, shot.speed * (1 + speedNoise * random.nextGaussian())) * Physics.STEP;
+            world.shoot(speed * Math.cos(angle), speed * Math.sin(angle));
+
+            if (eventDriven) {
+                new EventSimulation(world).runUntilRest(MAX_STEPS);
+            } else {
+                world.runUntilRest(MAX_STEPS);
+            }
+            tally.add(world, targetBall);
+        }
+        return tally;
+    }
+}
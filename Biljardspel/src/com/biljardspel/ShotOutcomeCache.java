@@ -0,0 +1,401 @@
+package com.biljardspel;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * ****************************************************************************************
+ * ShotOutcomeCache
+ * <p>
+ * Remembers what a shot did from a position, so that the analysis (ShotSearch,
+ * or a tool playing the break over and over) gets the same position and shot a
+ * second time without simulating it again. An outcome is the position when the
+ * balls have come to rest, as a WorldSnapshot, and the balls that fell in on the
+ * way: which ball, into which hole and at which step of the shot.
+ * <p>
+ * The key is the position and the shot on a grid: ball positions and velocities
+ * to POSITION_QUANTUM, the angle to ANGLE_QUANTUM and the speed to SPEED_QUANTUM,
+ * with which balls are on the table, the rules, the table and the sub-stepping.
+ * A position that is only nearly the same would not give the same outcome, so
+ * the cache simulates the position as it is on the grid: snap() moves the world
+ * and the shot onto it first. A snapped position gives the same outcome whether
+ * it comes from the cache or not, and whichever thread simulated it first.
+ * <p>
+ * The cache is safe to use from many threads. It is split into SEGMENTS, each an
+ * LRU map behind its own lock, chosen by the hash of the key, so threads seldom
+ * wait for each other. Each segment holds at most its share of maxBytes, going by
+ * an estimate of the memory of its entries; the least recently used ones make
+ * room. hits(), misses(), hitRate() and bytes() say how well it does.
+ */
+class ShotOutcomeCache {
+
+    static final double POSITION_QUANTUM = 1.0 / 1024;     // pixels; powers of two, so snapping is exact
+    static final double VELOCITY_QUANTUM = 1.0 / 65536;    // pixels per step
+    static final double ANGLE_QUANTUM = 1.0 / (1 << 20);   // radians
+    static final double SPEED_QUANTUM = 1.0 / 65536;
+
+    static final int SEGMENTS = 16;
+    static final int ENTRY_OVERHEAD = 160;      // bytes of an entry besides its arrays: objects, headers, the map node
+    static final long DEFAULT_MAX_BYTES = 64L << 20;
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+    private final long maxBytes;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final ThreadLocal<World> scratch = new ThreadLocal<>();
+    private final ThreadLocal<PocketLog> logs = ThreadLocal.withInitial(PocketLog::new);
+
+    /**
+     * Where a shot left the balls, and what fell in on the way.
+     */
+    static final class Outcome {
+        final long[] snapshot;                  // WorldSnapshot of the position at rest
+        final int steps;                        // the shot took
+        final int[] pocketBall;                 // in the order they fell in
+        final int[] pocketHole;
+        final int[] pocketStep;                 // steps after the shot
+
+        Outcome(long[] snapshot, int steps, int[] pocketBall, int[] pocketHole, int[] pocketStep) {
+            this.snapshot = snapshot;
+            this.steps = steps;
+            this.pocketBall = pocketBall;
+            this.pocketHole = pocketHole;
+            this.pocketStep = pocketStep;
+        }
+
+        int pocketCount() {
+            return pocketBall.length;
+        }
+
+        long bytes() {
+            return 8L * snapshot.length + 12L * pocketBall.length;
+        }
+    }
+
+    /**
+     * A position and shot on the grid. Equal keys are equal arrays; the hash is
+     * worked out once, and picks the segment as well as the bucket.
+     */
+    static final class Key {
+        final long[] values;
+        final int hash;
+
+        Key(long[] values) {
+            this.values = values;
+            long h = 0x9E3779B97F4A7C15L;
+            for (long value : values) {
+                h = (h ^ value) * 0xBF58476D1CE4E5B9L;
+                h ^= h >>> 31;
+            }
+            hash = (int) (h ^ h >>> 32);
+        }
+
+        public boolean equals(Object other) {
+            return other instanceof Key && ((Key) other).hash == hash && Arrays.equals(((Key) other).values, values);
+        }
+
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static final class Segment extends LinkedHashMap<Key, Outcome> {
+        private static final long serialVersionUID = 1L;   // never serialized, but a map is Serializable
+
+        long bytes;
+
+        Segment() {
+            super(64, 0.75f, true);             // in order of access, the least recently used first
+        }
+    }
+
+    ShotOutcomeCache() {
+        this(DEFAULT_MAX_BYTES);
+    }
+
+    ShotOutcomeCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+        for (int k = 0; k < SEGMENTS; k++) {
+            segments[k] = new Segment();
+        }
+    }
+
+    /**
+     * A cache of -Dbiljard.shotCacheMB megabytes, or null if that is not set.
+     */
+    static ShotOutcomeCache fromProperties() {
+        Integer megabytes = Integer.getInteger("biljard.shotCacheMB");
+        return megabytes == null ? null : new ShotOutcomeCache((long) megabytes << 20);
+    }
+
+    /**
+     * The number of the grid line nearest to the value, half way rounding to the
+     * even one. snap() puts values on the line and key() keeps the number, both
+     * through here, so a value lands in the same place in each.
+     */
+    private static long quantize(double value, double quantum) {
+        return (long) Math.rint(value / quantum);
+    }
+
+    /**
+     * Moves every ball of the world onto the grid of the key.
+     */
+    static void snap(World world) {
+        BallState s = world.state;
+        for (int i = 0; i < s.count; i++) {
+            s.x[i] = quantize(s.x[i], POSITION_QUANTUM) * POSITION_QUANTUM;
+            s.y[i] = quantize(s.y[i], POSITION_QUANTUM) * POSITION_QUANTUM;
+            s.vx[i] = quantize(s.vx[i], VELOCITY_QUANTUM) * VELOCITY_QUANTUM;
+            s.vy[i] = quantize(s.vy[i], VELOCITY_QUANTUM) * VELOCITY_QUANTUM;
+        }
+        world.ballsPlaced();
+    }
+
+    static Shot snap(Shot shot) {
+        return new Shot(quantize(shot.angle, ANGLE_QUANTUM) * ANGLE_QUANTUM,
+                quantize(shot.speed, SPEED_QUANTUM) * SPEED_QUANTUM);
+    }
+
+    static Key key(World world, Shot shot) {
+        BallState s = world.state;
+        TableGeometry t = world.table;
+        long[] values = new long[6 + 4 * s.count + (s.count + 7) / 8];
+        int k = 0;
+
+        values[k++] = (long) t.width << 32 | t.height;
+        values[k++] = (long) t.wallThickness << 8 | t.pockets;
+        values[k++] = (long) world.maxSubsteps << 32 | s.count;
+        values[k++] = WorldSnapshot.rules(world);
+        values[k++] = quantize(shot.angle, ANGLE_QUANTUM);
+        values[k++] = quantize(shot.speed, SPEED_QUANTUM);
+
+        for (int i = 0; i < s.count; i++) {
+            values[k++] = quantize(s.x[i], POSITION_QUANTUM);
+            values[k++] = quantize(s.y[i], POSITION_QUANTUM);
+            values[k++] = quantize(s.vx[i], VELOCITY_QUANTUM);
+            values[k++] = quantize(s.vy[i], VELOCITY_QUANTUM);
+        }
+        for (int i = 0; i < s.count; i += 8) {
+            long flags = 0;
+            for (int j = i; j < Math.min(i + 8, s.count); j++) {
+                flags |= (long) (s.kind[j] << 1 | s.status[j]) << 8 * (j - i);
+            }
+            values[k++] = flags;
+        }
+        return new Key(values);
+    }
+
+    private Segment segment(Key key) {
+        return segments[(key.hash ^ key.hash >>> 16) & (SEGMENTS - 1)];
+    }
+
+    /**
+     * The outcome for the key, or null, counting the hit or the miss.
+     */
+    Outcome get(Key key) {
+        Segment segment = segment(key);
+        Outcome outcome;
+        synchronized (segment) {
+            outcome = segment.get(key);
+        }
+
+        if (outcome == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return outcome;
+    }
+
+    void put(Key key, Outcome outcome) {
+        Segment segment = segment(key);
+        long size = ENTRY_OVERHEAD + 8L * key.values.length + outcome.bytes();
+        long segmentMax = maxBytes / SEGMENTS;
+
+        if (size > segmentMax) {
+            return;                             // it would only push everything else out
+        }
+
+        synchronized (segment) {
+            Outcome old = segment.put(key, outcome);
+            segment.bytes += size;
+
+            if (old != null) {                  // another thread got there first, with the same outcome
+                segment.bytes -= ENTRY_OVERHEAD + 8L * key.values.length + old.bytes();
+            }
+
+            Iterator<Map.Entry<Key, Outcome>> eldest = segment.entrySet().iterator();
+            while (segment.bytes > segmentMax) {
+                Map.Entry<Key, Outcome> entry = eldest.next();
+                segment.bytes -= ENTRY_OVERHEAD + 8L * entry.getKey().values.length + entry.getValue().bytes();
+                eldest.remove();
+                evictions.increment();
+            }
+        }
+    }
+
+    /**
+     * What the shot does from the world's position, on the grid: from the cache,
+     * or simulated for at most maxSteps steps on a scratch world and remembered.
+     * The world itself is left alone; apply() plays the outcome onto it.
+     */
+    Outcome resolve(World world, Shot shot, int maxSteps) {
+        shot = snap(shot);
+        Key key = key(world, shot);
+        Outcome outcome = get(key);
+
+        if (outcome == null) {
+            World w = scratch.get();
+            if (w == null || w.state.count != world.state.count || w.table != world.table) {
+                w = new World(world.table, world.state.count, null);
+                scratch.set(w);
+            }
+            w.copyFrom(world);
+            snap(w);
+
+            record(w);
+            w.shoot(shot);
+            outcome = recorded(w, w.runUntilRest(maxSteps));
+            put(key, outcome);
+        }
+        return outcome;
+    }
+
+    /**
+     * Puts the world where the outcome left the balls, the step count moved on
+     * by the length of the shot. The world must have as many balls.
+     */
+    static void apply(Outcome outcome, World world) {
+        long step = world.stepCount;
+        WorldSnapshot.read(world, outcome.snapshot, 0);
+        world.stepCount = step + outcome.steps;
+    }
+
+    /**
+     * Starts noting the balls that fall in on the world, for recorded(). For the
+     * callers that simulate the shot themselves, eg to give up at a deadline.
+     */
+    void record(World world) {
+        PocketLog log = logs.get();
+        log.count = 0;
+        log.shotStep = world.stepCount;
+        world.observer = log;
+    }
+
+    /**
+     * The outcome of the shot simulated since record(), which took the given
+     * number of steps; the world stops being watched.
+     */
+    Outcome recorded(World world, int steps) {
+        PocketLog log = logs.get();
+        world.observer = null;
+
+        long[] snapshot = new long[WorldSnapshot.longs(world.state.count)];
+        WorldSnapshot.write(world, snapshot, 0);
+        return new Outcome(snapshot, steps, Arrays.copyOf(log.ball, log.count),
+                Arrays.copyOf(log.hole, log.count), Arrays.copyOf(log.step, log.count));
+    }
+
+    private static final class PocketLog implements PhysicsEventQueue.Listener {
+        int count;
+        long shotStep;
+        int[] ball = new int[16];
+        int[] hole = new int[16];
+        int[] step = new int[16];
+
+        public void event(byte type, int eventBall, int other, long eventStep) {
+            if (type != PhysicsEventQueue.POCKETED && type != PhysicsEventQueue.SCRATCH) {
+                return;
+            }
+
+            if (count == ball.length) {
+                ball = Arrays.copyOf(ball, 2 * count);
+                hole = Arrays.copyOf(hole, 2 * count);
+                step = Arrays.copyOf(step, 2 * count);
+            }
+            ball[count] = eventBall;
+            hole[count] = other;
+            step[count] = (int) (eventStep - shotStep);
+            count++;
+        }
+    }
+
+    long hits() {
+        return hits.sum();
+    }
+
+    long misses() {
+        return misses.sum();
+    }
+
+    long evictions() {
+        return evictions.sum();
+    }
+
+    double hitRate() {
+        long hit = hits.sum();
+        long total = hit + misses.sum();
+        return total == 0 ? 0 : (double) hit / total;
+    }
+
+    int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    long bytes() {                              // estimated
+        long bytes = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                bytes += segment.bytes;
+            }
+        }
+        return bytes;
+    }
+
+    void clear() {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+                segment.bytes = 0;
+            }
+        }
+    }
+
+    public String toString() {
+        return String.format("%d outcomes, %.1f of %.1f MB, hit rate %.1f%% (%d hits, %d misses), %d evicted",
+                size(), bytes() / 1048576.0, maxBytes / 1048576.0, 100 * hitRate(), hits(), misses(), evictions());
+    }
+
+    /**
+     * Plays a spread of break shots twice over, to show what the second time costs:
+     * ShotOutcomeCache [shots].
+     */
+    public static void main(String[] args) {
+        int shots = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        ShotOutcomeCache cache = new ShotOutcomeCache();
+        World world = new World();
+
+        for (int pass = 1; pass <= 2; pass++) {
+            long start = System.nanoTime();
+            int pocketed = 0;
+
+            for (int k = 0; k < shots; k++) {
+                Shot shot = new Shot(-Math.PI / 2 + 0.4 * (k - shots / 2) / shots, 6 + 8.0 * (k % 7) / 6);
+                pocketed += cache.resolve(world, shot, 100000).pocketCount();
+            }
+            System.out.printf("pass %d: %d shots, %d balls in, %.1f ms%n",
+                    pass, shots, pocketed, (System.nanoTime() - start) / 1e6);
+        }
+        System.out.println(cache);
+    }
+}
@@ -0,0 +1,355 @@
+package com.biljardspel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * ****************************************************************************************
+ * ShotSearch
+ * <p>
+ * Chooses a shot for the computer. Every candidate shot is played on a headless
+ * copy of the world until the balls are at rest, and the position it leaves is
+ * scored for the player to move: own balls sunk, the opponent's balls sunk,
+ * fouls, keeping the turn, the black ball, and where the white ball ends up for
+ * the next shot.
+ * <p>
+ * The first round tries a grid of angles by speeds. After that it is a beam
+ * search: the beamWidth best shots so far are each tried again a little to
+ * either side and a little harder and softer, the best of old and new are kept,
+ * and the steps are halved for the next round. The candidates of a round are
+ * shared out over the workers of a ForkJoinPool. The time budget is hard: every
+ * simulation looks at the clock as it goes and gives up at the deadline, and
+ * the best shot found until then is returned.
+ * <p>
+ * With a ShotOutcomeCache the position and the shots are put on the grid of the
+ * cache, and shots tried before, in this search or an earlier one, are scored
+ * from their remembered outcome.
+ */
+class ShotSearch {
+
+    private static final int MAX_STEPS = 100000;   // a shot that has not stopped by then is cut short
+    private static final int CLOCK_STEPS = 16;     // steps between looks at the clock
+
+    static final double POT = 100;              // scores
+    static final double OPPONENT_POT = -40;
+    static final double FOUL = -150;
+    static final double TURN_KEPT = 25;
+    static final double POSITION = 20;          // at most, for the white ball right next to an own ball
+    static final double WIN = 10000;
+
+    long timeBudgetNanos = 200_000_000L;
+    int angles = 72;                            // the first round, every 5 degrees
+    int speeds = 5;                             // at that many speeds from minSpeed to maxSpeed
+    double minSpeed = 2;
+    double maxSpeed = 14;
+    int beamWidth = 8;
+    ShotOutcomeCache cache;                     // null for none
+
+    private final ForkJoinPool pool;
+    private final ThreadLocal<World> scratch = new ThreadLocal<>();
+
+    /**
+     * The shot chosen, with how good it looked and what the search cost.
+     */
+    static final class Choice {
+        final Shot shot;
+        final double score;
+        final int evaluated;                    // shots simulated to rest
+        final int rounds;                       // of refinement after the first
+        final long elapsedNanos;
+
+        Choice(Shot shot, double score, int evaluated, int rounds, long elapsedNanos) {
+            this.shot = shot;
+            this.score = score;
+            this.evaluated = evaluated;
+            this.rounds = rounds;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public String toString() {
+            return String.format("%s score %.1f after %d shots, %d rounds in %.1f ms",
+                    shot, score, evaluated, rounds, elapsedNanos / 1e6);
+        }
+    }
+
+    ShotSearch() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    ShotSearch(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Searches a shot for the player whose turn it is. The world must be at rest
+     * with the white ball on the table; it is copied, so the caller may go on
+     * changing it meanwhile.
+     */
+    Choice choose(World world) {
+        long start = System.nanoTime();
+        long deadline = start + timeBudgetNanos;
+        World original = world.copy();
+        if (cache != null) {
+            ShotOutcomeCache.snap(original);
+        }
+
+        Shot[] beam = new Shot[0];
+        double[] beamScores = new double[0];
+        double angleStep = 2 * Math.PI / angles;
+        double speedStep = (maxSpeed - minSpeed) / Math.max(1, speeds - 1);
+
+        Shot[] candidates = new Shot[angles * speeds];
+        for (int a = 0; a < angles; a++) {
+
+            for (int v = 0; v < speeds; v++) {
+                candidates[a * speeds + v] = new Shot(-Math.PI + a * angleStep, minSpeed + v * speedStep);
+            }
+        }
+
+        int evaluated = 0;
+        int rounds = -1;
+        do {
+            double[] scores = new double[candidates.length];
+            evaluated += evaluate(original, candidates, scores, deadline);
+
+            int keep = Math.min(beamWidth, beam.length + candidates.length);
+            Shot[] nextBeam = new Shot[keep];
+            double[] nextScores = new double[keep];
+            int kept = best(beam, beamScores, candidates, scores, nextBeam, nextScores);
+            beam = Arrays.copyOf(nextBeam, kept);
+            beamScores = Arrays.copyOf(nextScores, kept);
+
+            angleStep /= 2;
+            speedStep /= 2;
+            candidates = refine(beam, angleStep, speedStep);
+            rounds++;
+        } while (System.nanoTime() < deadline && beam.length > 0);
+
+        if (beam.length == 0) {                 // not even one shot finished: anything beats nothing
+            return new Choice(new Shot(-Math.PI / 2, (minSpeed + maxSpeed) / 2), Double.NEGATIVE_INFINITY,
+                    evaluated, 0, System.nanoTime() - start);
+        }
+        return new Choice(beam[0], beamScores[0], evaluated, rounds, System.nanoTime() - start);
+    }
+
+    /**
+     * Scores the candidates, in parallel, into scores; NaN for those that did not
+     * finish before the deadline. Returns how many did.
+     */
+    private int evaluate(World original, Shot[] candidates, double[] scores, long deadline) {
+        int parallelism = Math.max(1, Math.min(pool.getParallelism(), candidates.length));
+        List<ForkJoinTask<Integer>> tasks = new ArrayList<>(parallelism);
+
+        for (int t = 0; t < parallelism; t++) {
+            int first = t;
+            tasks.add(pool.submit(() -> {
+                int done = 0;
+                for (int k = first; k < candidates.length; k += parallelism) {   // interleaved, so slow shots spread out
+                    scores[k] = score(original, candidates[k], deadline);
+                    if (!Double.isNaN(scores[k])) {
+                        done++;
+                    }
+                }
+                return done;
+            }));
+        }
+
+        int done = 0;
+        for (ForkJoinTask<Integer> task : tasks) {
+            done += task.join();
+        }
+        return done;
+    }
+
+    private double score(World original, Shot shot, long deadline) {
+        if (System.nanoTime() >= deadline) {
+            return Double.NaN;
+        }
+        World world = scratch.get();
+
+        if (world == null || world.state.count != original.state.count || world.table != original.table) {
+            world = new World(original.table, original.state.count, null);
+            scratch.set(world);
+        }
+        world.copyFrom(original);
+        world.resultTitle = null;
+        world.resultMessage = null;
+
+        ShotOutcomeCache.Key key = null;
+        if (cache != null) {
+            shot = ShotOutcomeCache.snap(shot);
+            key = ShotOutcomeCache.key(world, shot);
+            ShotOutcomeCache.Outcome outcome = cache.get(key);
+
+            if (outcome != null) {
+                ShotOutcomeCache.apply(outcome, world);
+                return score(original, world);
+            }
+            cache.record(world);
+        }
+        world.shoot(shot);
+
+        int steps = 0;
+        do {
+            world.step();
+            steps++;
+
+            if (steps % CLOCK_STEPS == 0 && System.nanoTime() >= deadline) {
+                world.observer = null;
+                return Double.NaN;
+            }
+        } while (!world.allBallStopped() && steps < MAX_STEPS);
+
+        if (cache != null) {
+            cache.put(key, cache.recorded(world, steps));
+        }
+        return score(original, world);
+    }
+
+    /**
+     * How good the position after a shot is for the player who played it.
+     */
+    static double score(World before, World after) {
+        boolean red = before.redPlayer;
+        int own = red ? after.redBallNumber - before.redBallNumber : after.blueBallNumber - before.blueBallNumber;
+        int opponent = red ? after.blueBallNumber - before.blueBallNumber : after.redBallNumber - before.redBallNumber;
+        double score = own * POT + opponent * OPPONENT_POT;
+
+        if (after.resultMessage != null) {      // the black ball went down
+            boolean redWon = after.resultMessage == World.RESULT_MESSAGES[0]
+                    || after.resultMessage == World.RESULT_MESSAGES[3];
+            return score + (redWon == red ? WIN : -WIN);
+        }
+        if (after.rules.foul) {
+            score += FOUL;
+        }
+        if (after.redPlayer == red) {
+            score += TURN_KEPT;
+        }
+
+        if (!after.isWhiteBallInHole()) {
+            BallState s = after.state;
+            byte ownKind = red ? BallState.RED : BallState.BLUE;
+            double nearest = Double.POSITIVE_INFINITY;
+
+            for (int k = 0; k < after.activeCount(); k++) {
+                int i = after.activeBall(k);
+
+                if (s.kind[i] == ownKind) {
+                    nearest = Math.min(nearest, Math.hypot(s.x[i] - s.x[0], s.y[i] - s.y[0]));
+                }
+            }
+            double diagonal = Math.hypot(after.table.width, after.table.height);
+            score += POSITION * Math.max(0, 1 - nearest / diagonal);
+        }
+        return score;
+    }
+
+    /**
+     * Merges the old beam and the new candidates into the best ones, best first.
+     * Candidates that did not finish are left out. Returns how many there are.
+     */
+    private static int best(Shot[] beam, double[] beamScores, Shot[] candidates, double[] scores,
+                            Shot[] out, double[] outScores) {
+        int n = 0;
+        for (int k = 0; k < beam.length + candidates.length; k++) {
+            Shot shot = k < beam.length ? beam[k] : candidates[k - beam.length];
+            double score = k < beam.length ? beamScores[k] : scores[k - beam.length];
+
+            if (Double.isNaN(score) || (n == out.length && score <= outScores[n - 1])) {
+                continue;
+            }
+
+            int m = n < out.length ? n++ : n - 1;  // insertion, dropping the worst when full
+            while (m > 0 && outScores[m - 1] < score) {
+                out[m] = out[m - 1];
+                outScores[m] = outScores[m - 1];
+                m--;
+            }
+            out[m] = shot;
+            outScores[m] = score;
+        }
+        return n;
+    }
+
+    private Shot[] refine(Shot[] beam, double angleStep, double speedStep) {
+        Shot[] children = new Shot[8 * beam.length];
+        int n = 0;
+
+        for (Shot shot : beam) {
+
+            for (int da = -1; da <= 1; da++) {
+
+                for (int dv = -1; dv <= 1; dv++) {
+
+                    if (da != 0 || dv != 0) {
+                        double speed = Math.max(minSpeed / 2, Math.min(maxSpeed, shot.speed + dv * speedStep));
+                        children[n++] = new Shot(shot.angle + da * angleStep, speed);
+                    }
+                }
+            }
+        }
+        return children;
+    }
+
+    /**
+     * Where to put the white ball back after it fell in: where it stood for the
+     * break if that is free, otherwise the first free place on a grid from the
+     * bottom of the table up.
+     */
+    static Coord placement(World world) {
+        TableGeometry t = world.table;
+        if (world.placeWhiteBall(t.centerX, (t.centerY / 2) * 3)) {
+            return new Coord(t.centerX, (t.centerY / 2) * 3);
+        }
+
+        for (double y = t.maxY - Ball.RADIUS; y > t.minY; y -= Ball.DIAMETER) {
+
+            for (double x = t.minX + Ball.RADIUS; x < t.maxX; x += Ball.DIAMETER) {
+
+                if (world.placeWhiteBall(x, y)) {
+                    return new Coord(x, y);
+                }
+            }
+        }
+        throw new IllegalStateException("There is no room for the white ball");
+    }
+
+    /**
+     * Plays the computer against itself without a display and prints every move,
+     * eg to see that the budget is kept: ShotSearch [moves [budget ms]]. With
+     * -Dbiljard.shotCacheMB it searches with a ShotOutcomeCache that large.
+     */
+    public static void main(String[] args) {
+        int moves = args.length > 0 ? Integer.parseInt(args[0]) : 40;
+        ShotSearch search = new ShotSearch();
+        search.cache = ShotOutcomeCache.fromProperties();
+        if (args.length > 1) {
+            search.timeBudgetNanos = Long.parseLong(args[1]) * 1_000_000L;
+        }
+
+        World world = new World();
+        for (int move = 0; move < moves && world.resultMessage == null; move++) {
+            if (world.isWhiteBallInHole()) {
+                Coord place = placement(world);
+                world.placeWhiteBallAt(place.x, place.y);
+            }
+
+            String player = world.redPlayer ? "red " : "blue";
+            Choice choice = search.choose(world);
+            world.shoot(choice.shot);
+            world.runUntilRest(MAX_STEPS);
+            System.out.println(player + " " + choice + " -> red " + world.redBallNumber + " blue "
+                    + world.blueBallNumber + (world.rules.foul ? " foul" : ""));
+        }
+        if (world.resultMessage != null) {
+            System.out.println(world.resultMessage.trim());
+        }
+        if (search.cache != null) {
+            System.out.println(search.cache);
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package com.biljardspel;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ****************************************************************************************
+ * SimulationLoop
+ * <p>
+ * Runs a world on a thread of its own, at a fixed number of steps per second of
+ * real time, whatever the display is doing. The time that has passed is added up
+ * and whole steps are taken out of it, so steps missed while the thread was held
+ * up are caught up on, at most MAX_CATCH_UP of them at a time. When every ball
+ * has stopped the thread sleeps until there is input.
+ * <p>
+ * Only this thread touches the world. Input is posted as commands, which run
+ * between steps. After each round of steps the state before and after the last
+ * step are published, and read() gives the renderer both together with how far
+ * real time has got between them.
+ * <p>
+ * With a Replay the loop plays a recorded game at normal speed: the recorded
+ * inputs are applied at the steps they came at, with REPLAY_PAUSE between the
+ * moment everything stops and the next shot.
+ */
+class SimulationLoop implements Runnable {
+
+    static final int MAX_CATCH_UP = 25;         // steps; after a longer hold-up the lost time is let go
+    static final long REPLAY_PAUSE = 1_000_000_000L;
+
+    /**
+     * The outcome of a game, handed over from the rules to whoever shows it.
+     */
+    static final class Result {
+        final String title;
+        final String message;
+
+        Result(String title, String message) {
+            this.title = title;
+            this.message = message;
+        }
+    }
+
+    private final World world;
+    private final long stepNanos;
+    private final LinkedBlockingQueue<Runnable> commands = new LinkedBlockingQueue<>();
+    private final ConcurrentLinkedQueue<Result> results = new ConcurrentLinkedQueue<>();
+    private volatile long posted;               // commands posted so far
+    private long done;                          // and run so far, on the simulation thread
+
+    private RenderState backPrevious;           // filled in by the simulation thread
+    private RenderState backCurrent;
+    private RenderState frontPrevious;          // swapped with the back ones under the lock
+    private RenderState frontCurrent;
+
+    private Replay replay;
+    private Thread thread;
+    private volatile boolean running;
+
+    SimulationLoop(World world, int stepsPerSecond) {
+        this.world = world;
+        world.measured = true;                  // the game shown, not the worlds played through to choose a shot
+        stepNanos = 1_000_000_000L / stepsPerSecond;
+
+        int count = world.state.count;
+        backPrevious = new RenderState(count);
+        backCurrent = new RenderState(count);
+        frontPrevious = new RenderState(count);
+        frontCurrent = new RenderState(count);
+
+        long now = System.nanoTime();
+        frontPrevious.capture(world, 0, now);
+        frontCurrent.capture(world, 0, now);
+    }
+
+    void setReplay(Replay replay) {             // before start(); the replay must be of this loop's world
+        this.replay = replay;
+    }
+
+    void start() {
+        running = true;
+        thread = new Thread(this, "simulation");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    void stop() throws InterruptedException {
+        running = false;
+        thread.interrupt();
+        thread.join();
+    }
+
+    void post(Runnable command) {               // from any thread, but posted is only counted right from one
+        posted++;
+        commands.add(command);
+    }
+
+    long posted() {
+        return posted;
+    }
+
+    Result pollResult() {
+        return results.poll();
+    }
+
+    /**
+     * Copies the two latest published states and returns how far real time has
+     * got from the first to the second, between 0 and 1. Painting the balls that
+     * far along from previous to current runs one step behind the simulation,
+     * but moves smoothly at any frame rate.
+     */
+    synchronized double read(RenderState previous, RenderState current) {
+        previous.copyFrom(frontPrevious);
+        current.copyFrom(frontCurrent);
+
+        double alpha = (double) (System.nanoTime() - frontCurrent.nanos) / stepNanos;
+        return Math.max(0, Math.min(1, alpha));
+    }
+
+    public void run() {
+        long last = System.nanoTime();
+        long accumulator = 0;
+        long wake = 0;                                      // when the thread meant to wake up, for Metrics
+
+        try {
+            while (running) {
+                boolean changed = runCommands();
+
+                if (world.allBallStopped()) {
+                    if (changed) {
+                        publish(System.nanoTime(), false);
+                    }
+
+                    if (replay != null && replay.hasNext()) {
+                        Runnable command = commands.poll(REPLAY_PAUSE, TimeUnit.NANOSECONDS);
+                        if (command != null) {
+                            runCommand(command);
+                        }
+                        while (world.stepCount < replay.nextStep()) {
+                            world.step();
+                        }
+                        replay.applyDue();
+                    } else {
+                        runCommand(commands.take());        // nothing happens until there is input
+                    }
+                    last = System.nanoTime();
+                    accumulator = 0;
+                    wake = 0;
+                    publish(last, false);
+                    continue;
+                }
+
+                long now = System.nanoTime();
+                if (Metrics.ENABLED && wake != 0 && now > wake) {
+                    Metrics.late(Metrics.STEP_LATENESS_NANOS, "simulation", now - wake);
+                }
+                accumulator = Math.min(accumulator + now - last, MAX_CATCH_UP * stepNanos);
+                last = now;
+
+                if (accumulator >= stepNanos) {
+                    while (accumulator >= 2 * stepNanos) {
+                        step();
+                        accumulator -= stepNanos;
+                    }
+                    backPrevious.capture(world, done, now - accumulator - stepNanos);
+                    step();
+                    accumulator -= stepNanos;
+                    publish(now - accumulator, true);
+                } else if (changed) {
+                    publish(now, false);
+                }
+
+                wake = now + stepNanos - accumulator;
+                Runnable command = commands.poll(stepNanos - accumulator, TimeUnit.NANOSECONDS);
+                if (command != null) {
+                    runCommand(command);
+                    publish(System.nanoTime(), false);
+                }
+            }
+        } catch (InterruptedException e) {
+            // stopped
+        }
+    }
+
+    private void step() {
+        if (replay != null) {
+            replay.applyDue();
+        }
+        world.step();
+    }
+
+    private boolean runCommands() {
+        boolean any = false;
+        Runnable command;
+
+        while ((command = commands.poll()) != null) {
+            runCommand(command);
+            any = true;
+        }
+        return any;
+    }
+
+    private void runCommand(Runnable command) {
+        command.run();
+        done++;
+    }
+
+    /**
+     * Publishes the world as it is now. After a step the state before it has been
+     * captured already; otherwise, eg after input, both states are the same so
+     * that nothing is interpolated across it.
+     */
+    private void publish(long nanos, boolean stepped) {
+        if (world.resultMessage != null) {
+            results.add(new Result(world.resultTitle, world.resultMessage));
+            world.resultTitle = null;
+            world.resultMessage = null;
+        }
+
+        backCurrent.capture(world, done, nanos);
+        if (!stepped) {
+            backPrevious.copyFrom(backCurrent);
+        }
+
+        synchronized (this) {
+            RenderState previous = frontPrevious;
+            RenderState current = frontCurrent;
+            frontPrevious = backPrevious;
+            frontCurrent = backCurrent;
+            backPrevious = previous;
+            backCurrent = current;
+        }
+    }
+}
@@ -0,0 +1,705 @@
+package com.biljardspel;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.*;
+import java.awt.Color;
+import java.awt.geom.Path2D;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * ****************************************************************************************
+ * Table
+ * <p>
+ * The table is the Swing view of a World. The world is simulated by a
+ * SimulationLoop on a thread of its own, UPDATE_FREQUENCY steps per second; the
+ * table only sends it the mouse input and paints the states it publishes. While
+ * the balls move a timer repaints the table FRAME_FREQUENCY times per second,
+ * each time drawing the balls between the two latest steps according to the time.
+ * <p>
+ * Everything that does not move (walls, felt, holes, score outlines and labels)
+ * is painted once into an image, which is painted again only when the size
+ * changes or the game is reset. Each frame then only repaints the areas around
+ * the balls that moved, so the cost of a frame follows the number of moving
+ * balls rather than the size of the window.
+ * <p>
+ * While the white ball is aimed, a TrajectoryPredictor shows where the shot
+ * goes. It predicts from a copy of the world taken each time the table comes to
+ * rest, so aiming never waits for the simulation thread.
+ * <p>
+ * With an ActiveRenderer the table is not shown itself: the renderer's thread
+ * has it draw whole frames onto a canvas with renderFrame(), and the timer is
+ * not used. What the frames show is then shared between that thread and the
+ * event thread, under frameLock.
+ */
+class Table extends JPanel implements MouseListener, MouseMotionListener, ActionListener {
+
+        final int tableWidth;                   // the geometry of the world's table
+        final int tableHeight;
+        final int wallThickness;
+        private final Color COLOR = new Color(0, 152, 0);
+        private final Color WALL_COLOR = new Color(102, 50, 0).brighter();
+        private static final Font PLAYER_FONT = new Font("Serif", Font.BOLD, 20);
+        private static final Font RED_NUMBERS_FONT = new Font("Times", Font.BOLD, 15);
+        private static final Font BLUE_NUMBERS_FONT = new Font("Serif", Font.BOLD, 15);
+        private static final int DIRTY_MARGIN = 2;  // the antialiased edge of a ball reaches a little outside it
+        private static final Font OVERLAY_FONT = new Font(Font.MONOSPACED, Font.PLAIN, 10);
+        private static final Color OVERLAY_BACKGROUND = new Color(0, 0, 0, 160);
+        private static final Color PATH_COLOR = new Color(255, 255, 255, 140);
+        private static final BasicStroke PATH_STROKE = new BasicStroke(1.5f);
+
+        final World world;                      // only to be touched by the simulation thread once started
+        final SimulationLoop simulation;
+        private final RenderState previous;     // the two latest steps, as last read from the simulation
+        private final RenderState view;
+        private final double[] ballX;           // where each ball is painted this frame
+        private final double[] ballY;
+        private final boolean[] ballShown;
+        private Coord aimPosition;              // where the white ball was grabbed, if it is being aimed
+        private final TrajectoryPredictor predictor = new TrajectoryPredictor();   // on the event thread only
+        private TrajectoryPredictor.Prediction prediction;   // of the shot being aimed, if any
+        private BufferedImage staticLayer;      // null until painted, and after a reset
+        private int frameWidth;                 // the size frames are painted at, under frameLock
+        private int frameHeight;
+        private final Rectangle overlayBounds;
+
+        private final Timer frameTimer;
+        private long lastFrame;                 // when the frame timer last fired, for Metrics
+        private ActiveRenderer renderer;        // paints the table instead of Swing, if set
+        private final Object frameLock = new Object();
+
+        private ShotSearch computer;            // plays one side, if set
+        private boolean computerRed;
+        private boolean computerThinking;
+        private ExecutorService computerThread;
+
+    Table() {
+        this(new World());
+    }
+
+    Table(World world) {
+        this.world = world;
+        tableWidth = world.table.width;
+        tableHeight = world.table.height;
+        wallThickness = world.table.wallThickness;
+        overlayBounds = new Rectangle(wallThickness, wallThickness, tableWidth, 102);
+        simulation = new SimulationLoop(world, Biljard.UPDATE_FREQUENCY);
+        previous = new RenderState(world.state.count);
+        view = new RenderState(world.state.count);
+        ballX = new double[world.state.count];
+        ballY = new double[world.state.count];
+        ballShown = new boolean[world.state.count];
+        advanceFrame();
+
+        setPreferredSize(new Dimension(tableWidth + 2 * wallThickness,
+                tableHeight + 2 * wallThickness));
+
+        addMouseListener(this);
+        addMouseMotionListener(this);
+
+        frameTimer = new Timer((int) (1000.0 / Biljard.FRAME_FREQUENCY), this);
+    }
+
+    void setComputer(ShotSearch search, boolean red) {   // before start()
+        computer = search;
+        computerRed = red;
+        computerThread = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "computer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    void setRenderer(ActiveRenderer renderer) {  // null to go back to painting the panel
+        boolean wasActive = this.renderer != null;
+        this.renderer = renderer;
+
+        if (wasActive && renderer == null) {
+            staticLayer = null;
+            animate();
+        }
+    }
+
+    void resizeTo(int width, int height) {      // the size of the renderer's canvas; the panel itself is left alone
+        synchronized (frameLock) {
+            frameWidth = width;
+            frameHeight = height;
+        }
+    }
+
+    void start() {
+        simulation.start();
+        animate();                              // the predictor and the computer start once the table is seen at rest
+    }
+
+    private boolean computersTurn() {
+        synchronized (frameLock) {
+            return computer != null && view.redPlayer == computerRed && !view.gameOver;
+        }
+    }
+
+    /**
+     * Lets the computer play if it is its turn. It searches on a copy of the world,
+     * made on the simulation thread, and on a thread of its own, so the table is
+     * painted and the simulation runs while it thinks; the shot it chooses is then
+     * posted from the event thread like a player's. If the search throws, the
+     * computer is free to try again the next time the balls come to rest.
+     */
+    private void computerMove() {
+        if (!computersTurn() || computerThinking) {
+            return;
+        }
+        computerThinking = true;
+
+        simulation.post(() -> {
+            World position = world.copy();
+            computerThread.execute(() -> {
+                Coord place = null;
+                Shot shot = null;
+                try {
+                    if (position.isWhiteBallInHole()) {
+                        place = ShotSearch.placement(position);
+                        position.placeWhiteBallAt(place.x, place.y);
+                    }
+                    shot = computer.choose(position).shot;
+                } finally {                     // posted from the event thread, as every other command
+                    Coord cueBall = place;
+                    Shot chosen = shot;
+                    SwingUtilities.invokeLater(() -> {
+                        if (chosen != null) {
+                            simulation.post(() -> {
+                                if (world.allBallStopped() && world.redPlayer == computerRed) {
+                                    if (cueBall != null && world.isWhiteBallInHole()) {
+                                        world.placeWhiteBallAt(cueBall.x, cueBall.y);
+                                    }
+                                    world.shoot(chosen);
+                                }
+                            });
+                        }
+                        computerThinking = false;
+                        animate();
+                    });
+                }
+            });
+        });
+    }
+
+    public void reset() {
+        predictor.setPosition(null);
+        synchronized (frameLock) {
+            aimPosition = null;
+            prediction = null;
+            staticLayer = null;
+        }
+        simulation.post(world::reset);
+        animate();
+        frameChanged();
+    }
+
+    private void animate() {                    // repaint until the simulation has caught up and come to rest
+        if (renderer != null) {
+            renderer.wake();
+        } else if (!frameTimer.isRunning()) {
+            lastFrame = 0;
+            frameTimer.start();
+        }
+    }
+
+    public void actionPerformed(ActionEvent e) {
+        if (Metrics.ENABLED) {
+            long now = System.nanoTime();
+            if (lastFrame != 0) {
+                Metrics.late(Metrics.FRAME_LATENESS_NANOS, "frame",
+                        Math.max(0, now - lastFrame - frameTimer.getDelay() * 1_000_000L));
+            }
+            lastFrame = now;
+        }
+        boolean caughtUp;
+        synchronized (frameLock) {
+            advanceFrame();
+            caughtUp = caughtUp();
+        }
+
+        if (caughtUp) {
+            frameTimer.stop();
+            cameToRest();
+        }
+        showResult(simulation.pollResult());
+    }
+
+    private boolean caughtUp() {                // at rest, and every command posted has been run
+        return view.atRest && view.commands == simulation.posted();
+    }
+
+    void cameToRest() {                         // on the event thread, once no more frames are needed
+        int generation = predictor.generation();   // dropped again before the copy arrives, eg by a shot, it is too old
+        simulation.post(() -> {
+            World position = world.copy();
+            SwingUtilities.invokeLater(() -> predictor.setPosition(position, generation));
+        });
+        computerMove();
+    }
+
+    private void showResult(SimulationLoop.Result result) {
+        if (result != null) {
+            JOptionPane.showMessageDialog(null, result.message, result.title, JOptionPane.INFORMATION_MESSAGE);
+        }
+    }
+
+    private void frameChanged() {               // something other than the balls changed, eg the aiming line
+        if (renderer != null) {
+            renderer.wake();
+        } else {
+            repaint();
+        }
+    }
+
+    /**
+     * Draws a whole frame for the ActiveRenderer, on its thread: reads the latest
+     * steps like a tick of the timer and paints everything. Returns whether more
+     * frames are needed.
+     */
+    boolean renderFrame(Graphics2D g2D) {
+        boolean caughtUp;
+        synchronized (frameLock) {
+            Metrics.PaintEvent event = Metrics.ENABLED ? new Metrics.PaintEvent() : null;
+            long start = 0;
+            if (Metrics.ENABLED) {
+                event.begin();
+                start = System.nanoTime();
+            }
+
+            advanceFrame();
+            paintTable(g2D);
+
+            if (Metrics.ENABLED) {
+                if (Metrics.OVERLAY) {
+                    paintOverlay(g2D);
+                }
+                Metrics.painted(System.nanoTime() - start, frameWidth * frameHeight, event);
+            }
+            caughtUp = caughtUp();
+        }
+
+        SimulationLoop.Result result = simulation.pollResult();
+        if (result != null) {
+            SwingUtilities.invokeLater(() -> showResult(result));
+        }
+        return !caughtUp;
+    }
+
+    /**
+     * Reads the latest steps from the simulation, works out where the balls are to
+     * be painted now and asks for a repaint of what changed: the old and the new
+     * place of each ball that moved, and the score if it changed. An ActiveRenderer
+     * paints everything anyway and needs no repaints.
+     */
+    void advanceFrame() {
+        boolean passive = renderer == null;
+        boolean redPlayer = view.redPlayer;
+        int redBallNumber = view.redBallNumber;
+        int blueBallNumber = view.blueBallNumber;
+        boolean atRest = view.atRest;
+
+        if (Metrics.OVERLAY && passive) {
+            repaint(overlayBounds);
+        }
+
+        double alpha = simulation.read(previous, view);
+        for (int i = 0; i < view.count; i++) {
+            boolean shown = !view.isPocketed(i);
+            double x = previous.x[i] + alpha * (view.x[i] - previous.x[i]);
+            double y = previous.y[i] + alpha * (view.y[i] - previous.y[i]);
+
+            if (shown != ballShown[i] || x != ballX[i] || y != ballY[i]) {
+                if (ballShown[i] && passive) {
+                    repaintBall(ballX[i], ballY[i]);
+                }
+                if (shown && passive) {
+                    repaintBall(x, y);
+                }
+                ballShown[i] = shown;
+                ballX[i] = x;
+                ballY[i] = y;
+            }
+        }
+
+        if (passive && (view.redPlayer != redPlayer || view.atRest != atRest
+                || view.redBallNumber != redBallNumber || view.blueBallNumber != blueBallNumber)) {
+            repaint(0, 0, getWidth(), wallThickness);
+            repaint(0, tableHeight + wallThickness, getWidth(), wallThickness);
+        }
+    }
+
+    private void repaintBall(double x, double y) {
+        repaint((int) (x - Ball.RADIUS) - DIRTY_MARGIN,
+                (int) (y - Ball.RADIUS) - DIRTY_MARGIN,
+                (int) Ball.DIAMETER + 2 * DIRTY_MARGIN,
+                (int) Ball.DIAMETER + 2 * DIRTY_MARGIN);
+    }
+
+    private double cueX() {
+        return ballX[0];
+    }
+
+    private double cueY() {
+        return ballY[0];
+    }
+
+    public void mousePressed(MouseEvent event) {
+            Coord mousePosition = new Coord(event);
+
+            synchronized (frameLock) {
+                if (view.atRest && !view.whiteBallInHole && !computersTurn()
+                        && Coord.distance(new Coord(cueX(), cueY()), mousePosition) <= Ball.RADIUS) {
+                    aimPosition = mousePosition;
+                }
+            }
+            frameChanged();
+    }
+
+    public void mouseReleased(MouseEvent e) {
+        Coord aimingVector;
+        synchronized (frameLock) {
+            if (aimPosition == null) {
+                return;
+            }
+            aimingVector = Coord.sub(new Coord(cueX(), cueY()), aimPosition);
+            aimPosition = null;
+            prediction = null;
+        }
+        predictor.setPosition(null);            // until the shot has come to rest
+        frameChanged();
+        Shot shot = Shot.fromAim(aimingVector.x, aimingVector.y);
+
+        simulation.post(() -> {
+            if (world.allBallStopped()) {
+                world.shoot(shot);
+            }
+        });
+        animate();
+    }
+
+    public void mouseDragged(MouseEvent event) {
+        Coord aimingVector = null;
+        synchronized (frameLock) {
+            if (aimPosition != null) {
+                aimPosition = new Coord(event);
+                aimingVector = Coord.sub(new Coord(cueX(), cueY()), aimPosition);
+            }
+        }
+
+        if (aimingVector != null) {
+            TrajectoryPredictor.Prediction predicted = predictor.predict(Shot.fromAim(aimingVector.x, aimingVector.y));
+            synchronized (frameLock) {
+                prediction = aimPosition != null ? predicted : null;
+            }
+        }
+        frameChanged();
+    }
+
+    public void mouseClicked(MouseEvent e) {
+        boolean placing;
+        synchronized (frameLock) {
+            placing = view.whiteBallInHole;
+        }
+
+        if (placing && !computersTurn()) {
+            predictor.setPosition(null);
+            double xPos = e.getX();
+            double yPos = e.getY();
+
+            simulation.post(() -> {
+                if (world.isWhiteBallInHole() && world.placeWhiteBall(xPos, yPos)) {
+                    world.placeWhiteBallAt(xPos, yPos);
+                }
+            });
+            animate();
+        }
+    }
+
+    public void mouseEntered(MouseEvent e) { }
+    public void mouseExited(MouseEvent e) { }
+    public void mouseMoved(MouseEvent e) { }
+
+    public void playerStringPaint(Graphics2D graphics) {
+        Graphics2D g2D = graphics;
+        Color firstPlayer = Color.RED;
+        g2D.setFont(PLAYER_FONT);
+        g2D.setColor(firstPlayer);
+        g2D.drawString("Player 1", (float) (wallThickness + Hole.HOLE_RADIUS), wallThickness - 5);
+
+        Color secondPlayer = Color.BLUE;
+        g2D.setFont(PLAYER_FONT);
+        g2D.setColor(secondPlayer);
+        g2D.drawString("Player 2", (float) (wallThickness + Hole.HOLE_RADIUS), tableHeight + 2 * wallThickness - 5);
+    }
+
+    public void paintRedBalls(Graphics2D graphics) {
+        int scoreBalls = 7;
+        double xPos = wallThickness + 5 * Hole.HOLE_RADIUS + Ball.RADIUS;
+        Graphics2D g2D = graphics;
+
+        for (int i = 0; i < scoreBalls; i++) {
+            g2D.setColor(Color.RED);
+            g2D.drawOval(
+                    (int) (xPos),
+                    (int) (Ball.RADIUS / 2),
+                    (int) (Ball.RADIUS),
+                    (int) (Ball.RADIUS));
+            xPos += Ball.DIAMETER;
+        }
+
+        g2D.setFont(RED_NUMBERS_FONT);
+        g2D.setColor(Color.BLACK);
+        g2D.drawString("1", (float) (wallThickness + 4.95 * Hole.HOLE_RADIUS +     Ball.DIAMETER -11), (float) Ball.RADIUS + 4);
+        g2D.drawString("2", (float) (wallThickness + 4.95 * Hole.HOLE_RADIUS + 2 * Ball.DIAMETER -11), (float) Ball.RADIUS + 4);
+        g2D.drawString("3", (float) (wallThickness + 4.95 * Hole.HOLE_RADIUS + 3 * Ball.DIAMETER -11), (float) Ball.RADIUS + 4);
+        g2D.drawString("4", (float) (wallThickness + 4.95 * Hole.HOLE_RADIUS + 4 * Ball.DIAMETER -11), (float) Ball.RADIUS + 4);
+        g2D.drawString("5", (float) (wallThickness + 4.95 * Hole.HOLE_RADIUS + 5 * Ball.DIAMETER -11), (float) Ball.RADIUS + 4);
+        g2D.drawString("6", (float) (wallThickness + 4.95 * Hole.HOLE_RADIUS + 6 * Ball.DIAMETER -11), (float) Ball.RADIUS + 4);
+        g2D.drawString("7", (float) (wallThickness + 4.95 * Hole.HOLE_RADIUS + 7 * Ball.DIAMETER -11), (float) Ball.RADIUS + 4);
+    }
+
+    public void paintBlueBalls(Graphics2D graphics) {
+        int scoreBalls = 7;
+        double xPos = wallThickness + 5 * Hole.HOLE_RADIUS + Ball.RADIUS;
+        Graphics2D g2D = graphics;
+        for (int i = 0; i < scoreBalls; i++) {
+            g2D.setColor(Color.BLUE);
+            g2D.drawOval(
+                    (int) (xPos),
+                    (int) (tableHeight + wallThickness + Ball.RADIUS / 2),
+                    (int) (Ball.RADIUS),
+                    (int) (Ball.RADIUS));
+            xPos += Ball.DIAMETER;
+        }
+
+        g2D.setFont(BLUE_NUMBERS_FONT);
+        g2D.setColor(Color.BLACK);
+        g2D.drawString("1", (float) (wallThickness + 4.95 * Hole.HOLE_RADIUS +     Ball.DIAMETER-11), tableHeight + 2 * wallThickness - 6);
+        g2D.drawString("2", (float) (wallThickness + 4.95 * Hole.HOLE_RADIUS + 2 * Ball.DIAMETER-11), tableHeight + 2 * wallThickness - 6);
+        g2D.drawString("3", (float) (wallThickness + 4.95 * Hole.HOLE_RADIUS + 3 * Ball.DIAMETER-11), tableHeight + 2 * wallThickness - 6);
+        g2D.drawString("4", (float) (wallThickness + 4.95 * Hole.HOLE_RADIUS + 4 * Ball.DIAMETER-11), tableHeight + 2 * wallThickness - 6);
+        g2D.drawString("5", (float) (wallThickness + 4.95 * Hole.HOLE_RADIUS + 5 * Ball.DIAMETER-11), tableHeight + 2 * wallThickness - 6);
+        g2D.drawString("6", (float) (wallThickness + 4.95 * Hole.HOLE_RADIUS + 6 * Ball.DIAMETER-11), tableHeight + 2 * wallThickness - 6);
+        g2D.drawString("7", (float) (wallThickness + 4.95 * Hole.HOLE_RADIUS + 7 * Ball.DIAMETER-11), tableHeight + 2 * wallThickness - 6);
+    }
+
+    void paintFillScoreBallRed(Graphics2D graphics) {
+        double redBall = view.redBallNumber;
+            for(int i=0; i<redBall; i++) {
+                double xPos = wallThickness + 5 * Hole.HOLE_RADIUS + Ball.RADIUS + i * Ball.DIAMETER;
+                graphics.setColor(Color.RED);
+                graphics.fillOval(
+                        (int) (xPos),
+                        (int) (Ball.RADIUS / 2),
+                        (int) (Ball.RADIUS),
+                        (int) (Ball.RADIUS));
+            }
+    }
+
+    void paintFillScoreBallBlue(Graphics2D graphics) {
+            double blueBall = view.blueBallNumber;
+        for(int i=0; i<blueBall; i++) {
+            double xPos = wallThickness + 5 * Hole.HOLE_RADIUS + Ball.RADIUS + i * Ball.DIAMETER;
+            graphics.setColor(Color.BLUE);
+            graphics.fillOval(
+                    (int) (xPos),
+                    (int) (tableHeight + wallThickness + Ball.RADIUS / 2),
+                    (int) (Ball.RADIUS),
+                    (int) (Ball.RADIUS));
+        }
+    }
+
+    void player2Paint(Graphics2D graphics) {
+            double xPos = wallThickness + 4.6 * Hole.HOLE_RADIUS;
+            graphics.setColor(Color.WHITE);
+            graphics.fillOval(
+                    (int) (xPos),
+                    (int) (tableHeight + wallThickness + Ball.RADIUS / 2),
+                    (int) (Ball.RADIUS),
+                    (int) (Ball.RADIUS));
+    }
+
+    void player1Paint(Graphics2D graphics){
+            double xPos = wallThickness + 4.6 * Hole.HOLE_RADIUS;
+            graphics.setColor(Color.WHITE);
+            graphics.fillOval(
+                    (int) (xPos),
+                    (int) (Ball.RADIUS/2),
+                    (int) (Ball.RADIUS),
+                    (int) (Ball.RADIUS));
+    }
+
+    /**
+     * The predicted paths: the white ball's, a ring where it hits the first ball
+     * and that ball's path on from there.
+     */
+    private void paintPrediction(Graphics2D g2D) {
+        Stroke stroke = g2D.getStroke();
+        g2D.setStroke(PATH_STROKE);
+        g2D.setColor(PATH_COLOR);
+        g2D.draw(path(prediction.cuePath));
+
+        if (prediction.objectBall >= 0) {
+            g2D.drawOval((int) (prediction.contactX - Ball.RADIUS), (int) (prediction.contactY - Ball.RADIUS),
+                    (int) Ball.DIAMETER, (int) Ball.DIAMETER);
+            g2D.setColor(Ball.colorOf(view.kind[prediction.objectBall]));
+            g2D.draw(path(prediction.objectPath));
+        }
+        g2D.setStroke(stroke);
+    }
+
+    private static Path2D path(double[] points) {
+        Path2D.Double path = new Path2D.Double();
+        if (points.length >= 2) {
+            path.moveTo(points[0], points[1]);
+        }
+        for (int k = 2; k < points.length; k += 2) {
+            path.lineTo(points[k], points[k + 1]);
+        }
+        return path;
+    }
+
+    private void paintAimingLine(Graphics2D graph2D) {
+        Coord cue = new Coord(cueX(), cueY());
+        Coord.paintLine(
+                graph2D,
+                aimPosition,
+                Coord.sub(Coord.mul(2, cue), aimPosition)
+        );
+    }
+
+    /**
+     * Paints what never moves into an image the size of the table, compatible
+     * with the screen when there is one so that drawing it is a plain copy.
+     */
+    private void paintStaticLayer() {
+        int width = Math.max(1, frameWidth);
+        int height = Math.max(1, frameHeight);
+        GraphicsConfiguration configuration = renderer != null
+                ? renderer.canvas.getGraphicsConfiguration() : getGraphicsConfiguration();
+        staticLayer = configuration != null
+                ? configuration.createCompatibleImage(width, height)
+                : new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+
+        Graphics2D g2D = staticLayer.createGraphics();
+        g2D.setRenderingHint(RenderingHints.KEY_ANTIALIASING, // This makes the graphics smoother
+                RenderingHints.VALUE_ANTIALIAS_ON);
+
+        g2D.setColor(getBackground());
+        g2D.fillRect(0, 0, width, height);
+
+        g2D.setColor(WALL_COLOR);
+        g2D.fillRect(0, 0, tableWidth + 2 * wallThickness, tableHeight + 2 * wallThickness);
+
+        g2D.setColor(COLOR);
+        g2D.fillRect(wallThickness, wallThickness, tableWidth, tableHeight);
+
+        for (Hole hole : world.holes) {
+            hole.paintHole(g2D);
+        }
+
+        paintRedBalls(g2D);
+        paintBlueBalls(g2D);
+        playerStringPaint(g2D);
+        g2D.dispose();
+    }
+
+    @Override
+    public void paintComponent(Graphics graphics) {
+        synchronized (frameLock) {
+            frameWidth = getWidth();
+            frameHeight = getHeight();
+            paintComponent((Graphics2D) graphics);
+        }
+    }
+
+    private void paintComponent(Graphics2D graphics) {
+        if (!Metrics.ENABLED) {
+            paintTable(graphics);
+            return;
+        }
+
+        Metrics.PaintEvent event = new Metrics.PaintEvent();
+        event.begin();
+        long start = System.nanoTime();
+        paintTable(graphics);
+
+        if (Metrics.OVERLAY) {
+            paintOverlay(graphics);
+        }
+        Rectangle clip = graphics.getClipBounds();
+        Metrics.painted(System.nanoTime() - start, clip != null ? clip.width * clip.height : getWidth() * getHeight(), event);
+    }
+
+    private void paintOverlay(Graphics2D g2D) {  // over the top of the felt, repainted every frame
+        g2D.setFont(OVERLAY_FONT);
+        g2D.setColor(OVERLAY_BACKGROUND);
+        g2D.fillRect(overlayBounds.x, overlayBounds.y, overlayBounds.width, overlayBounds.height);
+        g2D.setColor(Color.WHITE);
+
+        int y = overlayBounds.y + 12;
+        for (String line : Metrics.lines()) {
+            g2D.drawString(line, overlayBounds.x + 4, y);
+            y += 12;
+        }
+    }
+
+    private void paintTable(Graphics2D g2D) {
+
+        if (staticLayer == null || staticLayer.getWidth() != Math.max(1, frameWidth)
+                || staticLayer.getHeight() != Math.max(1, frameHeight)) {
+            paintStaticLayer();
+        }
+        g2D.drawImage(staticLayer, 0, 0, null);
+
+        g2D.setRenderingHint(RenderingHints.KEY_ANTIALIASING, // This makes the graphics smoother
+                RenderingHints.VALUE_ANTIALIAS_ON);
+
+        int size = (int) Ball.DIAMETER + 2 * DIRTY_MARGIN;
+        for (int i = 0; i < view.count; i++) {
+
+            if (ballShown[i] && g2D.hitClip((int) (ballX[i] - Ball.RADIUS) - DIRTY_MARGIN,
+                    (int) (ballY[i] - Ball.RADIUS) - DIRTY_MARGIN, size, size)) {
+                Ball.paintBall(g2D, Ball.colorOf(view.kind[i]), ballX[i], ballY[i]);
+            }
+        }
+
+        if (aimPosition != null) {
+            if (prediction != null) {
+                paintPrediction(g2D);
+            }
+            paintAimingLine(g2D);
+        }
+
+        for (Hole hole : world.holes) {         // over the balls that are falling in
+
+            if (g2D.hitClip((int) hole.holePosition.x, (int) hole.holePosition.y,
+                    (int) Hole.HOLE_DIAMETER, (int) Hole.HOLE_DIAMETER)) {
+                hole.paintHole(g2D);
+            }
+        }
+
+        if (g2D.hitClip(0, 0, frameWidth, wallThickness)
+                || g2D.hitClip(0, tableHeight + wallThickness, frameWidth, wallThickness)) {
+
+            if(view.atRest) {
+
+                if (!view.redPlayer) {
+                    player2Paint(g2D);
+                }
+
+                if (view.redPlayer) {
+                    player1Paint(g2D);
+                }
+            }
+
+            paintFillScoreBallRed(g2D);
+            paintFillScoreBallBlue(g2D);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.biljardspel;
+
+/**
+ * ****************************************************************************************
+ * TableGeometry
+ * <p>
+ * The size of a table and where its holes are. The playing area is width by
+ * height, inside walls wallThickness thick, so the whole table is
+ * outerWidth() by outerHeight() with the top left corner of the outer edge at
+ * 0, 0. The holes are the four corners and, with SIX_POCKETS, the middle of
+ * each long side; NO_POCKETS is for stress tests where nothing should leave the
+ * table.
+ * <p>
+ * The bounds a ball centre stays within are worked out once, so the physics
+ * reads them as plain fields.
+ */
+final class TableGeometry {
+
+    static final byte SIX_POCKETS = 0;          // pocket layouts
+    static final byte CORNER_POCKETS = 1;
+    static final byte NO_POCKETS = 2;
+
+    static final TableGeometry STANDARD = new TableGeometry(400, 580, 25, SIX_POCKETS);
+
+    static final double SCALED_FILL = 0.25;     // the part of a scaled table covered by balls
+
+    final int width;
+    final int height;
+    final int wallThickness;
+    final byte pockets;
+
+    final double minX;                          // where the centre of a ball bounces off the walls
+    final double maxX;
+    final double minY;
+    final double maxY;
+    final double centerX;
+    final double centerY;
+
+    TableGeometry(int width, int height, int wallThickness, byte pockets) {
+        if (width < 2 * Ball.DIAMETER || height < 2 * Ball.DIAMETER || wallThickness < 0) {
+            throw new IllegalArgumentException("Table too small: " + width + "x" + height + ", walls " + wallThickness);
+        }
+        if (pockets < SIX_POCKETS || pockets > NO_POCKETS) {
+            throw new IllegalArgumentException("Unknown pocket layout " + pockets);
+        }
+        this.width = width;
+        this.height = height;
+        this.wallThickness = wallThickness;
+        this.pockets = pockets;
+
+        minX = wallThickness + Ball.RADIUS;
+        maxX = width + wallThickness - Ball.RADIUS;
+        minY = wallThickness + Ball.RADIUS;
+        maxY = height + wallThickness - Ball.RADIUS;
+        centerX = (width + 2 * wallThickness) / 2;
+        centerY = height / 2;
+    }
+
+    /**
+     * A table of the standard proportions, at least as large as the standard one
+     * and large enough that the balls cover about SCALED_FILL of it.
+     */
+    static TableGeometry scaledFor(int ballCount, byte pockets) {
+        double area = ballCount * Math.PI * Ball.RADIUS * Ball.RADIUS / SCALED_FILL;
+        double scale = Math.max(1, Math.sqrt(area / ((double) STANDARD.width * STANDARD.height)));
+
+        return new TableGeometry((int) Math.ceil(STANDARD.width * scale), (int) Math.ceil(STANDARD.height * scale),
+                STANDARD.wallThickness, pockets);
+    }
+
+    /**
+     * The table given by -Dbiljard.table=WIDTHxHEIGHT, or =scaled for the one
+     * scaledFor() the number of balls, and -Dbiljard.pockets=6, 4 or 0. Without
+     * them it is the standard table.
+     */
+    static TableGeometry fromProperties(int ballCount) {
+        String size = System.getProperty("biljard.table");
+        byte pockets = pocketLayout(Integer.getInteger("biljard.pockets", 6));
+
+        if (size == null) {
+            return pockets == SIX_POCKETS ? STANDARD
+                    : new TableGeometry(STANDARD.width, STANDARD.height, STANDARD.wallThickness, pockets);
+        }
+        if (size.equals("scaled")) {
+            return scaledFor(ballCount, pockets);
+        }
+
+        int x = size.indexOf('x');
+        if (x < 0) {
+            throw new IllegalArgumentException("biljard.table should be WIDTHxHEIGHT or scaled, not " + size);
+        }
+        return new TableGeometry(Integer.parseInt(size.substring(0, x)), Integer.parseInt(size.substring(x + 1)),
+                STANDARD.wallThickness, pockets);
+    }
+
+    static byte pocketLayout(int holes) {
+        switch (holes) {
+            case 6:
+                return SIX_POCKETS;
+            case 4:
+                return CORNER_POCKETS;
+            case 0:
+                return NO_POCKETS;
+            default:
+                throw new IllegalArgumentException("A table has 6, 4 or 0 holes, not " + holes);
+        }
+    }
+
+    int holeCount() {
+        return pockets == SIX_POCKETS ? 6 : pockets == CORNER_POCKETS ? 4 : 0;
+    }
+
+    int outerWidth() {
+        return width + 2 * wallThickness;
+    }
+
+    int outerHeight() {
+        return height + 2 * wallThickness;
+    }
+
+    Hole[] createHoles() {
+        Hole[] holes = new Hole[holeCount()];
+        double left = wallThickness - Hole.HOLE_RADIUS;
+        double right = width + wallThickness - Hole.HOLE_RADIUS;
+        double top = wallThickness - Hole.HOLE_RADIUS;
+        double bottom = height + wallThickness - Hole.HOLE_RADIUS;
+
+        if (holes.length > 0) {
+            holes[0] = new Hole(new Coord(left, top), Hole.CORNER);
+            holes[1] = new Hole(new Coord(right, top), Hole.CORNER);
+            holes[2] = new Hole(new Coord(left, bottom), Hole.CORNER);
+            holes[3] = new Hole(new Coord(right, bottom), Hole.CORNER);
+        }
+        if (holes.length > 4) {
+            holes[4] = new Hole(new Coord(left, centerY), Hole.LEFT_SIDE);
+            holes[5] = new Hole(new Coord(right, centerY), Hole.RIGHT_SIDE);
+        }
+        return holes;
+    }
+
+    boolean isStandard() {
+        return width == STANDARD.width && height == STANDARD.height
+                && wallThickness == STANDARD.wallThickness && pockets == STANDARD.pockets;
+    }
+
+    @Override
+    public String toString() {
+        return width + "x" + height + " with " + holeCount() + " holes";
+    }
+}
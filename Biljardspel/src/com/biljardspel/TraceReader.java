@@ -0,0 +1,129 @@
+package com.biljardspel;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * ****************************************************************************************
+ * TraceReader
+ * <p>
+ * Reads a file written by a TraceSink straight from a read-only mapping of it,
+ * without copying: the single values by tick and ball, or a whole column of a
+ * block, one quantity of one ball for BLOCK_TICKS ticks, as a FloatBuffer over
+ * the mapped file. The file may still be being written: committed() reads how
+ * many ticks are complete with an acquire load, and those can be read while
+ * the writer goes on. See TraceSink for the format.
+ */
+class TraceReader {
+
+    private static final String[] KINDS = {"white", "red", "blue", "black"};
+
+    private final MappedByteBuffer buffer;
+    final int ballCount;
+    final long capacity;
+    final int stepsPerSecond;
+    final int tableWidth;
+    final int tableHeight;
+    final int wallThickness;
+    private final int dataOffset;
+    private final int blockBytes;
+
+    TraceReader(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+        if (buffer.capacity() < TraceSink.HEADER_BYTES || buffer.getInt(0) != TraceSink.MAGIC) {
+            throw new IOException(file + " is not a trace");
+        }
+        if (buffer.getInt(4) != TraceSink.VERSION || buffer.getInt(12) != TraceSink.BLOCK_TICKS) {
+            throw new IOException(file + " is a trace of version " + buffer.getInt(4) + ", not " + TraceSink.VERSION);
+        }
+        ballCount = buffer.getInt(8);
+        capacity = buffer.getLong(16);
+        stepsPerSecond = buffer.getInt(32);
+        tableWidth = buffer.getInt(36);
+        tableHeight = buffer.getInt(40);
+        wallThickness = buffer.getInt(44);
+        dataOffset = TraceSink.dataOffset(ballCount);
+        blockBytes = TraceSink.blockBytes(ballCount);
+    }
+
+    long committed() {                          // the ticks that can be read
+        return (long) TraceSink.LONGS.getAcquire((ByteBuffer) buffer, TraceSink.COMMITTED_OFFSET);
+    }
+
+    boolean isClosed() {                        // the writer is done; read committed() after this
+        return (long) TraceSink.LONGS.getAcquire((ByteBuffer) buffer, TraceSink.CLOSED_OFFSET) != 0;
+    }
+
+    byte kind(int ball) {
+        return buffer.get(TraceSink.HEADER_BYTES + ball);
+    }
+
+    private int base(long tick) {
+        return dataOffset + (int) (tick / TraceSink.BLOCK_TICKS) * blockBytes;
+    }
+
+    long step(long tick) {
+        return buffer.getLong(base(tick) + TraceSink.tickOffset((int) (tick % TraceSink.BLOCK_TICKS)));
+    }
+
+    float value(long tick, int column, int ball) {   // column is TraceSink.X, Y, VX or VY
+        return buffer.getFloat(base(tick)
+                + TraceSink.columnOffset(ballCount, column, ball, (int) (tick % TraceSink.BLOCK_TICKS)));
+    }
+
+    byte flags(long tick, int ball) {
+        return buffer.get(base(tick) + TraceSink.flagsOffset(ballCount, ball, (int) (tick % TraceSink.BLOCK_TICKS)));
+    }
+
+    /**
+     * The column of a block for one ball, BLOCK_TICKS floats of which those up to
+     * committed() are written, as a view of the mapping.
+     */
+    FloatBuffer column(int block, int column, int ball) {
+        int offset = dataOffset + block * blockBytes + TraceSink.columnOffset(ballCount, column, ball, 0);
+        return buffer.slice(offset, 4 * TraceSink.BLOCK_TICKS).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+    }
+
+    /**
+     * Prints how far each ball has rolled and how often it fell in, scanning the
+     * trace column by column: TraceReader file.
+     */
+    public static void main(String[] args) throws IOException {
+        TraceReader trace = new TraceReader(Path.of(args[0]));
+        long ticks = trace.committed();
+        System.out.printf("%d balls, %d ticks (%.1f s)%s%n", trace.ballCount, ticks,
+                ticks / (double) trace.stepsPerSecond, trace.isClosed() ? "" : ", still being written");
+
+        for (int ball = 0; ball < trace.ballCount; ball++) {
+            double distance = 0;
+            int pocketed = 0;
+
+            for (int block = 0; (long) block * TraceSink.BLOCK_TICKS < ticks; block++) {
+                FloatBuffer x = trace.column(block, TraceSink.X, ball);
+                FloatBuffer y = trace.column(block, TraceSink.Y, ball);
+                int end = (int) Math.min(TraceSink.BLOCK_TICKS, ticks - (long) block * TraceSink.BLOCK_TICKS);
+
+                for (int t = 1; t < end; t++) {
+                    distance += Math.hypot(x.get(t) - x.get(t - 1), y.get(t) - y.get(t - 1));
+                }
+            }
+            for (long tick = 0; tick < ticks; tick++) {
+                if ((trace.flags(tick, ball) & TraceSink.POCKETED) != 0) {
+                    pocketed++;
+                }
+            }
+            System.out.printf("ball %2d (%s): %8.0f pixels, in %d times%n", ball,
+                    KINDS[trace.kind(ball)], distance, pocketed);
+        }
+    }
+}
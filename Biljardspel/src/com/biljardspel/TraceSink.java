@@ -0,0 +1,320 @@
+package com.biljardspel;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * ****************************************************************************************
+ * TraceSink
+ * <p>
+ * Writes every step of a world into a memory-mapped file, for analysis and
+ * training data (-Dbiljard.trace=file): the position and velocity of each ball
+ * as floats, and a byte of flags per ball saying whether it is on the table,
+ * moving, was shot, touched first or fell in that step. The file is mapped once
+ * when the sink is made, at its full capacity, so a step is only stores into
+ * memory: no allocation and no system call. What happens after the capacity is
+ * reached is counted in dropped() and not written.
+ * <p>
+ * The format, little-endian:
+ * <pre>
+ *   0   MAGIC               4   VERSION            8   ball count n
+ *   12  BLOCK_TICKS         16  capacity in ticks (long)
+ *   24  ticks committed (long)                     32  steps per second
+ *   36  table width         40  table height       44  wall thickness
+ *   48  closed (long, 1 once the writer has closed)
+ *   64  the kind of each ball, a byte each, then blocks from dataOffset(n)
+ * </pre>
+ * The ticks are stored in blocks of BLOCK_TICKS, and in a block column by
+ * column: first the step number of each tick (long), then for x, y, vx and vy
+ * in turn, ball by ball, a float per tick, then per ball a byte of flags per
+ * tick. So a reader follows one quantity of one ball over a block as one run of
+ * memory. blockBytes(n) and the offset methods give where everything is.
+ * <p>
+ * The ticks go into the mapping STAGE_TICKS at a time (see tick()) and are then
+ * published by moving the committed count on with a release store; a
+ * TraceReader that reads that count with an acquire load sees every tick up to
+ * there complete, even while the world goes on writing, in the same process or
+ * in another that maps the file. close() writes out the rest.
+ */
+class TraceSink implements PhysicsEventQueue.Listener {
+
+    static final int MAGIC = 0x43525442;        // "BTRC" read little-endian
+    static final int VERSION = 1;
+    static final int BLOCK_TICKS = 1024;
+    static final int HEADER_BYTES = 64;
+    static final int COMMITTED_OFFSET = 24;
+    static final int CLOSED_OFFSET = 48;
+    static final int PAGE = 4096;
+    static final int STAGE_TICKS = 64;          // ticks kept on the heap before they go into the mapping
+
+    static final int X = 0;                     // float columns
+    static final int Y = 1;
+    static final int VX = 2;
+    static final int VY = 3;
+    static final int COLUMNS = 4;
+
+    static final byte ON_TABLE = 1;             // flags
+    static final byte MOVING = 2;
+    static final byte SHOT = 4;                 // the white ball was shot just before this step
+    static final byte FIRST_CONTACT = 8;        // the white ball and the ball it touched first
+    static final byte POCKETED = 16;            // fell in during this step
+
+    static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private final MappedByteBuffer buffer;
+    private final FloatBuffer floats;           // a view of the same mapping, for copying runs of floats
+    private final int ballCount;
+    private final long capacity;
+    private final int dataOffset;
+    private final int blockBytes;
+    private final byte[] events;                // flags from the events since the last tick
+    private final float[] stage;                // [column][ball][tick], as in a block
+    private final byte[] stageFlags;            // [ball][tick]
+    private final boolean[] dirty;              // per ball, it may have changed since it was last written
+    private final int[] staged;                 // per ball, the ticks of the stage written for it
+    private final float[] last;                 // [column][ball], the values it was last written with
+    private final byte[] lastFlags;             // and its flags then, but for those of events
+    private long ticks;                         // taken, some of them still in the stage
+    private long committed;                     // written to the mapping and published
+    private long dropped;
+
+    static int dataOffset(int ballCount) {
+        return (HEADER_BYTES + ballCount + 7) & ~7;
+    }
+
+    static int blockBytes(int ballCount) {
+        return BLOCK_TICKS * (8 + 4 * COLUMNS * ballCount + ballCount);
+    }
+
+    static int tickOffset(int t) {              // in a block, t the tick within it
+        return 8 * t;
+    }
+
+    static int columnOffset(int ballCount, int column, int ball, int t) {
+        return 8 * BLOCK_TICKS + 4 * BLOCK_TICKS * (column * ballCount + ball) + 4 * t;
+    }
+
+    static int flagsOffset(int ballCount, int ball, int t) {
+        return 8 * BLOCK_TICKS + 4 * BLOCK_TICKS * COLUMNS * ballCount + BLOCK_TICKS * ball + t;
+    }
+
+    /**
+     * Makes the file, replacing one that is there, with room for capacity ticks
+     * (rounded up to whole blocks) of the world's balls. Throws
+     * IllegalArgumentException if that would be over 2 GB, the most one mapping holds.
+     */
+    TraceSink(Path file, World world, long capacity) throws IOException {
+        ballCount = world.state.count;
+        long blocks = (capacity + BLOCK_TICKS - 1) / BLOCK_TICKS;
+        dataOffset = dataOffset(ballCount);
+        blockBytes = blockBytes(ballCount);
+        long size = dataOffset + blocks * blockBytes;
+
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("A trace of " + capacity + " ticks of " + ballCount
+                    + " balls does not fit in 2 GB, trace fewer ticks");
+        }
+        this.capacity = blocks * BLOCK_TICKS;
+        events = new byte[ballCount];
+        stage = new float[COLUMNS * ballCount * STAGE_TICKS];
+        stageFlags = new byte[ballCount * STAGE_TICKS];
+        staged = new int[ballCount];
+        last = new float[COLUMNS * ballCount];
+        lastFlags = new byte[ballCount];
+        dirty = new boolean[ballCount];
+        Arrays.fill(dirty, true);
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);   // the mapping outlives the channel
+        }
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        floats = buffer.asFloatBuffer();
+
+        for (long page = 0; page < size; page += PAGE) {   // fault the file in now, not a page at a time in tick()
+            buffer.put((int) page, (byte) 0);
+        }
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+        buffer.putInt(8, ballCount);
+        buffer.putInt(12, BLOCK_TICKS);
+        buffer.putLong(16, this.capacity);
+        buffer.putInt(32, Biljard.UPDATE_FREQUENCY);
+        buffer.putInt(36, world.table.width);
+        buffer.putInt(40, world.table.height);
+        buffer.putInt(44, world.table.wallThickness);
+        for (int i = 0; i < ballCount; i++) {
+            buffer.put(HEADER_BYTES + i, world.state.kind[i]);
+        }
+        LONGS.setRelease((ByteBuffer) buffer, COMMITTED_OFFSET, 0L);
+    }
+
+    /**
+     * The sink of -Dbiljard.trace=file for the world, with room for
+     * -Dbiljard.traceTicks steps (2^18 by default, 45 minutes at 100 Hz), or null.
+     */
+    static TraceSink fromProperties(World world) throws IOException {
+        String file = System.getProperty("biljard.trace");
+        return file == null ? null : new TraceSink(Path.of(file), world, Long.getLong("biljard.traceTicks", 1 << 18));
+    }
+
+    public void event(byte type, int ball, int other, long step) {
+        switch (type) {
+            case PhysicsEventQueue.SHOT:
+                events[0] |= SHOT;
+                dirty[0] = true;
+                break;
+            case PhysicsEventQueue.FIRST_CONTACT:
+                events[0] |= FIRST_CONTACT;
+                events[other] |= FIRST_CONTACT;
+                dirty[0] = true;
+                dirty[other] = true;
+                break;
+            case PhysicsEventQueue.POCKETED:
+            case PhysicsEventQueue.SCRATCH:
+                events[ball] |= POCKETED;
+                dirty[ball] = true;
+                break;
+            default:
+                break;
+        }
+    }
+
+    void touched(int ball) {                    // by the world, for a ball hit in the step
+        dirty[ball] = true;
+    }
+
+    void changed() {                            // by the world, when balls were moved other than by a step
+        Arrays.fill(dirty, true);
+    }
+
+    /**
+     * Takes the step the world has just taken. The columns are BLOCK_TICKS apart
+     * in the mapping, so writing a tick straight into it would be a store to
+     * another page for every value; instead STAGE_TICKS ticks are gathered in
+     * the stage, laid out as in a block, and then copied over a run per column
+     * and published together.
+     * <p>
+     * Most balls lie still most of the time, and a step only moves the balls that
+     * were moving and the ones they hit. Only those, and the balls events happened
+     * to, are written; the run of any other ball in the stage is filled in with
+     * its last values later on, when it changes again or the stage is copied out.
+     */
+    void tick(World world) {
+        if (ticks == capacity) {
+            dropped++;
+            return;
+        }
+
+        BallState s = world.state;
+        float[] l = last;
+        int n = ballCount;
+        int k = (int) (ticks - committed);      // in the stage
+
+        buffer.putLong(dataOffset + (int) (ticks / BLOCK_TICKS) * blockBytes
+                + tickOffset((int) (ticks % BLOCK_TICKS)), world.stepCount);   // one column, so straight in
+        for (int i = 0; i < n; i++) {
+            if (!dirty[i]) {
+                continue;
+            }
+
+            fill(i, k);
+            int flags = 0;
+            if (!s.isPocketed(i)) {
+                flags = ON_TABLE;
+                if (Physics.isMoving(s, i)) {
+                    flags |= MOVING;
+                }
+            }
+            l[X * n + i] = (float) s.x[i];
+            l[Y * n + i] = (float) s.y[i];
+            l[VX * n + i] = (float) s.vx[i];
+            l[VY * n + i] = (float) s.vy[i];
+            lastFlags[i] = (byte) flags;
+
+            stage[(X * n + i) * STAGE_TICKS + k] = l[X * n + i];
+            stage[(Y * n + i) * STAGE_TICKS + k] = l[Y * n + i];
+            stage[(VX * n + i) * STAGE_TICKS + k] = l[VX * n + i];
+            stage[(VY * n + i) * STAGE_TICKS + k] = l[VY * n + i];
+            stageFlags[i * STAGE_TICKS + k] = (byte) (flags | events[i]);
+            staged[i] = k + 1;
+            events[i] = 0;
+            dirty[i] = flags == (ON_TABLE | MOVING);   // it goes on moving in the next step
+        }
+
+        ticks++;
+        if (k == STAGE_TICKS - 1 || ticks % BLOCK_TICKS == 0) {
+            flush();
+        }
+    }
+
+    private void fill(int ball, int to) {       // the ticks of the stage up to to with the ball as it was last written
+        int n = ballCount;
+        int from = staged[ball];
+        if (from == to) {
+            return;
+        }
+
+        for (int column = X; column < COLUMNS; column++) {
+            int run = (column * n + ball) * STAGE_TICKS;
+            Arrays.fill(stage, run + from, run + to, last[column * n + ball]);
+        }
+        Arrays.fill(stageFlags, ball * STAGE_TICKS + from, ball * STAGE_TICKS + to, lastFlags[ball]);
+        staged[ball] = to;
+    }
+
+    /**
+     * Copies what is in the stage into the mapping, then publishes it.
+     */
+    void flush() {
+        int count = (int) (ticks - committed);  // never over the end of a block
+        if (count == 0) {
+            return;
+        }
+
+        int n = ballCount;
+        int t = (int) (committed % BLOCK_TICKS);
+        int base = dataOffset + (int) (committed / BLOCK_TICKS) * blockBytes;
+
+        for (int i = 0; i < n; i++) {
+            fill(i, count);
+            staged[i] = 0;
+        }
+        for (int c = 0; c < COLUMNS * n; c++) {
+            floats.put((base + columnOffset(n, 0, c, t)) / 4, stage, c * STAGE_TICKS, count);
+        }
+        for (int i = 0; i < n; i++) {
+            buffer.put(base + flagsOffset(n, i, t), stageFlags, i * STAGE_TICKS, count);
+        }
+
+        committed = ticks;
+        LONGS.setRelease((ByteBuffer) buffer, COMMITTED_OFFSET, committed);
+    }
+
+    long committed() {
+        return committed;
+    }
+
+    long dropped() {
+        return dropped;
+    }
+
+    /**
+     * Marks the trace as finished and writes it out to the file. The mapping
+     * itself goes when the sink is collected.
+     */
+    void close() {
+        flush();
+        LONGS.setRelease((ByteBuffer) buffer, CLOSED_OFFSET, 1L);
+        buffer.force();
+    }
+}
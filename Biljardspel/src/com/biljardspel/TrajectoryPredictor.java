@@ -0,0 +1,238 @@
+package com.biljardspel;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * ****************************************************************************************
+ * TrajectoryPredictor
+ * <p>
+ * Shows the player where a shot goes while it is being aimed: the path of the
+ * white ball, the ball it hits first and where it is then, and the path of that
+ * ball after it is hit. The shot is played on a headless copy of the position,
+ * the same physics as the game, and followed until MAX_CONTACTS balls have hit
+ * each other, both balls have stopped or fallen in, or the time budget of a
+ * prediction is used up; the rest of the shot is of no use to the aim.
+ * <p>
+ * Aiming moves the mouse a pixel at a time, and most of those moves change the
+ * shot by less than anyone could see. So a shot is put in a bucket of
+ * ANGLE_BUCKET by SPEED_BUCKET, the shot in the middle of the bucket is the one
+ * predicted, and the predictions of the last CACHE_SIZE buckets are kept until
+ * the position changes. Meant for the event thread only.
+ */
+class TrajectoryPredictor implements PhysicsEventQueue.Listener {
+
+    static final int MAX_CONTACTS = 3;
+    static final int MAX_STEPS = 3000;
+    static final long BUDGET_NANOS = 2_000_000L;
+    private static final int CLOCK_STEPS = 16;  // steps between looks at the clock
+    static final double ANGLE_BUCKET = 0.002;   // radians, about a pixel at the far end of the table
+    static final double SPEED_BUCKET = 0.05;
+    static final int CACHE_SIZE = 256;
+
+    /**
+     * A predicted shot. The paths are x, y pairs, a point per step. objectBall is
+     * -1 if the white ball hits nothing on the way; then contactX, contactY and the
+     * object path mean nothing.
+     */
+    static final class Prediction {
+        final double[] cuePath;
+        final int objectBall;
+        final double contactX;                  // the white ball when it hit the object ball
+        final double contactY;
+        final double[] objectPath;
+        final boolean cuePocketed;
+        final boolean objectPocketed;
+        final boolean complete;                 // false if the time ran out before the shot was followed to the end
+
+        Prediction(double[] cuePath, int objectBall, double contactX, double contactY, double[] objectPath,
+                   boolean cuePocketed, boolean objectPocketed, boolean complete) {
+            this.cuePath = cuePath;
+            this.objectBall = objectBall;
+            this.contactX = contactX;
+            this.contactY = contactY;
+            this.objectPath = objectPath;
+            this.cuePocketed = cuePocketed;
+            this.objectPocketed = objectPocketed;
+            this.complete = complete;
+        }
+    }
+
+    private World position;                     // at rest, where the shots are predicted from
+    private World scratch;
+    private int generation;                     // of the position, moved on when it is dropped
+    private final Map<Long, Prediction> cache = new LinkedHashMap<>(2 * CACHE_SIZE, 0.75f, true) {
+        protected boolean removeEldestEntry(Map.Entry<Long, Prediction> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+    long hits;
+    long misses;
+
+    private double[] cuePath = new double[256];
+    private int cuePoints;
+    private double[] objectPath = new double[256];
+    private int objectPoints;
+    private int objectBall;
+    private double contactX;
+    private double contactY;
+
+    /**
+     * The position the next shots are predicted from, a copy of its own that
+     * nobody else changes; null when there is none, eg while the balls roll.
+     * Setting null starts a new generation().
+     */
+    void setPosition(World world) {
+        if (world == null) {
+            generation++;
+        }
+        position = world;
+        cache.clear();
+
+        if (world != null && (scratch == null || scratch.state.count != world.state.count
+                || scratch.table != world.table)) {
+            scratch = new World(world.table, world.state.count, null);
+        }
+    }
+
+    int generation() {
+        return generation;
+    }
+
+    /**
+     * Sets the position only if no one has set null since generation() was
+     * generation: a copy asked for then and handed over later may be out of date.
+     */
+    void setPosition(World world, int generation) {
+        if (generation == this.generation) {
+            setPosition(world);
+        }
+    }
+
+    /**
+     * The prediction for the shot, or null if there is no position or the white
+     * ball is not on the table.
+     */
+    Prediction predict(Shot shot) {
+        if (position == null || position.isWhiteBallInHole()) {
+            return null;
+        }
+
+        long angle = Math.round(shot.angle / ANGLE_BUCKET);
+        long speed = Math.round(shot.speed / SPEED_BUCKET);
+        Long key = angle << 32 ^ (speed & 0xFFFFFFFFL);
+        Prediction prediction = cache.get(key);
+
+        if (prediction != null) {
+            hits++;
+            return prediction;
+        }
+        misses++;
+        prediction = simulate(new Shot(angle * ANGLE_BUCKET, speed * SPEED_BUCKET));
+        if (prediction.complete) {              // one cut short is tried again, eg once the JIT has caught up
+            cache.put(key, prediction);
+        }
+        return prediction;
+    }
+
+    private Prediction simulate(Shot shot) {
+        long deadline = System.nanoTime() + BUDGET_NANOS;
+        World w = scratch;
+        BallState s = w.state;
+        w.copyFrom(position);
+        w.contacts = 0;
+        cuePoints = 0;
+        objectPoints = 0;
+        objectBall = -1;
+
+        w.observer = this;
+        w.shoot(shot);
+        addCuePoint(s.x[0], s.y[0]);
+
+        boolean complete = false;
+        for (int step = 1; step <= MAX_STEPS; step++) {
+            w.step();
+
+            if (!s.isPocketed(0)) {
+                addCuePoint(s.x[0], s.y[0]);
+            }
+            if (objectBall >= 0 && !s.isPocketed(objectBall)) {
+                addObjectPoint(s.x[objectBall], s.y[objectBall]);
+            }
+
+            boolean cueDone = s.isPocketed(0) || !Physics.isMoving(s, 0);
+            boolean objectDone = objectBall >= 0 && (s.isPocketed(objectBall) || !Physics.isMoving(s, objectBall));
+            if (w.contacts >= MAX_CONTACTS || w.allBallStopped() || (cueDone && (objectBall < 0 || objectDone))) {
+                complete = true;
+                break;
+            }
+
+            if (step % CLOCK_STEPS == 0 && System.nanoTime() >= deadline) {
+                break;
+            }
+        }
+        w.observer = null;
+
+        return new Prediction(Arrays.copyOf(cuePath, 2 * cuePoints), objectBall, contactX, contactY,
+                Arrays.copyOf(objectPath, 2 * objectPoints), s.isPocketed(0),
+                objectBall >= 0 && s.isPocketed(objectBall), complete);
+    }
+
+    public void event(byte type, int ball, int other, long step) {
+        if (type == PhysicsEventQueue.FIRST_CONTACT && objectBall < 0) {
+            objectBall = other;
+            contactX = scratch.state.x[0];
+            contactY = scratch.state.y[0];      // at the end of the step, the object ball's path starts there too
+        }
+    }
+
+    private void addCuePoint(double x, double y) {
+        if (2 * cuePoints == cuePath.length) {
+            cuePath = Arrays.copyOf(cuePath, 2 * cuePath.length);
+        }
+        cuePath[2 * cuePoints] = x;
+        cuePath[2 * cuePoints + 1] = y;
+        cuePoints++;
+    }
+
+    private void addObjectPoint(double x, double y) {
+        if (2 * objectPoints == objectPath.length) {
+            objectPath = Arrays.copyOf(objectPath, 2 * objectPath.length);
+        }
+        objectPath[2 * objectPoints] = x;
+        objectPath[2 * objectPoints + 1] = y;
+        objectPoints++;
+    }
+
+    /**
+     * Sweeps an aim across the rack a pixel of mouse at a time, as a drag does, and
+     * prints what a prediction costs: TrajectoryPredictor [moves].
+     */
+    public static void main(String[] args) {
+        int moves = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        TrajectoryPredictor predictor = new TrajectoryPredictor();
+        World world = new World();
+        predictor.setPosition(world.copy());
+
+        long worst = 0;
+        long total = 0;
+        int incomplete = 0;
+        for (int k = 0; k < moves; k++) {
+            double dx = 40 * Math.sin(k * 0.01);   // back and forth below the white ball
+            long start = System.nanoTime();
+            Prediction prediction = predictor.predict(Shot.fromAim(dx, -60 - (k % 200) * 0.1));
+            long nanos = System.nanoTime() - start;
+
+            if (k >= moves / 10) {              // after warming up
+                worst = Math.max(worst, nanos);
+                total += nanos;
+            }
+            if (!prediction.complete) {
+                incomplete++;
+            }
+        }
+        System.out.printf("%d moves: mean %.1f us, worst %.1f us, %d cut short, %d hits, %d misses%n",
+                moves, total / 1e3 / (moves - moves / 10), worst / 1e3, incomplete, predictor.hits, predictor.misses);
+    }
+}
@@ -0,0 +1,136 @@
+package com.biljardspel;
+
+import java.util.Arrays;
+
+/**
+ * ****************************************************************************************
+ * UniformGrid
+ * <p>
+ * A broad phase that sorts the balls into square cells one ball diameter wide. Two
+ * balls can only touch if they are in the same or neighbouring cells, so the
+ * candidates for a ball are found in the 3 x 3 cells around it. Each cell keeps a
+ * doubly linked list of its balls in plain int arrays, which makes moving a ball to
+ * another cell a constant time operation without allocation.
+ */
+class UniformGrid implements BroadPhase {
+
+    private static final int NONE = -1;
+
+    private final double cellSize;
+    private final int columns;
+    private final int rows;
+    private final int[] cellHead;               // first ball in each cell
+    private final int[] next;                   // next and previous ball in the same cell
+    private final int[] prev;
+    private final int[] cellOf;                 // the cell of each ball, NONE if off the table
+
+    UniformGrid(int ballCount, double width, double height) {
+        this(ballCount, width, height, Ball.DIAMETER);
+    }
+
+    UniformGrid(int ballCount, double width, double height, double cellSize) {
+        this.cellSize = cellSize;
+        columns = Math.max(1, (int) Math.ceil(width / cellSize));
+        rows = Math.max(1, (int) Math.ceil(height / cellSize));
+        cellHead = new int[columns * rows];
+        next = new int[ballCount];
+        prev = new int[ballCount];
+        cellOf = new int[ballCount];
+        clear();
+    }
+
+    private void clear() {
+        Arrays.fill(cellHead, NONE);
+        Arrays.fill(cellOf, NONE);
+    }
+
+    private int column(double x) {
+        int c = (int) (x / cellSize);
+        return c < 0 ? 0 : (c >= columns ? columns - 1 : c);
+    }
+
+    private int row(double y) {
+        int r = (int) (y / cellSize);
+        return r < 0 ? 0 : (r >= rows ? rows - 1 : r);
+    }
+
+    public void rebuild(BallState s) {
+        clear();
+        for (int i = 0; i < s.count; i++) {
+
+            if (!s.isPocketed(i)) {
+                insert(i, row(s.y[i]) * columns + column(s.x[i]));
+            }
+        }
+    }
+
+    public void moved(BallState s, int i) {
+        int cell = row(s.y[i]) * columns + column(s.x[i]);
+
+        if (cell != cellOf[i]) {
+            removed(i);
+            insert(i, cell);
+        }
+    }
+
+    public void removed(int i) {
+        int cell = cellOf[i];
+
+        if (cell != NONE) {
+
+            if (prev[i] != NONE) {
+                next[prev[i]] = next[i];
+            } else {
+                cellHead[cell] = next[i];
+            }
+
+            if (next[i] != NONE) {
+                prev[next[i]] = prev[i];
+            }
+            cellOf[i] = NONE;
+        }
+    }
+
+    private void insert(int i, int cell) {
+        int head = cellHead[cell];
+        next[i] = head;
+        prev[i] = NONE;
+
+        if (head != NONE) {
+            prev[head] = i;
+        }
+        cellHead[cell] = i;
+        cellOf[i] = cell;
+    }
+
+    public int candidates(BallState s, int i, int[] out) {
+        int column = column(s.x[i]);
+        int row = row(s.y[i]);
+        int n = 0;
+
+        for (int r = Math.max(0, row - 1); r <= Math.min(rows - 1, row + 1); r++) {
+
+            for (int c = Math.max(0, column - 1); c <= Math.min(columns - 1, column + 1); c++) {
+
+                for (int j = cellHead[r * columns + c]; j != NONE; j = next[j]) {
+
+                    if (j != i) {
+                        out[n++] = j;
+                    }
+                }
+            }
+        }
+
+        for (int k = 1; k < n; k++) {           // insertion sort, there are only a handful of candidates
+            int j = out[k];
+            int m = k - 1;
+
+            while (m >= 0 && out[m] > j) {
+                out[m + 1] = out[m];
+                m--;
+            }
+            out[m + 1] = j;
+        }
+        return n;
+    }
+}
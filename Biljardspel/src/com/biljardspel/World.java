@@ -0,0 +1,708 @@
+package com.biljardspel;
+
+import java.util.Arrays;
+
+/**
+ * ****************************************************************************************
+ * World
+ * <p>
+ * The world owns everything needed to simulate one game: the balls, the holes and
+ * the state of the rules. It has no Swing dependency, so any number of worlds can
+ * be simulated side by side, with or without a display. One call to step() performs
+ * one simulation step, ie what the table used to do each time its timer fired.
+ */
+class World {
+
+    static final int STANDARD_BALLS = 16;
+
+    static final double MAX_DISPLACEMENT = Ball.RADIUS / 2;    // the furthest a ball moves in one sub-step
+    static final MotionKernel KERNEL = MotionKernel.load();     // the SIMD kernel if it is there, else null
+    static final int DENSE_AWAKE = 4;           // the kernel moves every ball, so it pays once one in this many moves
+    static final int MAX_SUBSTEPS =                             // the most sub-steps a step is split into
+            Integer.getInteger("biljard.maxSubsteps", 8);
+
+    final TableGeometry table;
+    final ScenarioGenerator scenario;           // how the balls are laid out, null for the standard rack
+    final BallState state;
+    final Ball[] balls;
+    final Hole[] holes;
+    private BroadPhase broadPhase;
+    private final int[] candidates;
+    private final byte[] moving;                // for the deterministic step: which balls moved
+    private final double[] dvx;                 // and the change of velocity from the contacts
+    private final double[] dvy;
+    private final int[] active;                 // the balls on the table, in increasing order
+    private int activeCount;
+    private final long[] awake;                 // one bit per ball that is on the table and moving
+    private int awakeCount;
+    private final int[] movedList;              // for the deterministic step: the balls that moved
+    private final int[] touchedList;            // and those whose velocity the contacts changed
+    private final PhysicsEventQueue events;     // what happened this step, for the rules
+    private MotionKernel kernel = KERNEL;       // for the deterministic step, null for ball by ball
+    final RulesEngine rules;
+    PhysicsEventQueue.Listener observer;        // also told every event after the rules, eg by ShotOutcomeCache
+    private TraceSink trace;                    // told every event too, and writes every step, if set
+    private final PhysicsEventQueue.Listener listeners;   // the rules, then the observer and the trace
+
+    final double ballSize = Ball.DIAMETER;
+    final double centerX;
+    final double centerY;
+    final double firstRow;
+
+    boolean redPlayer = true;
+    boolean ballShoot = false;
+
+    int redBallNumber = 0;
+    int blueBallNumber = 0;
+
+    String resultTitle;                         // set when the black ball is sunk, see RulesEngine.blackBall()
+    String resultMessage;
+
+    static final String WINNER = "WINNER!";
+    static final String LOSER = "LOSER!";
+    static final String[] RESULT_MESSAGES = {   // winners get the even ones
+            "Winner is Player 1 (red), CONGRATULATIONS ",
+            "Player 1 (red) lose ",
+            "Winner is Player 2 (blue), CONGRATULATIONS ",
+            "Player 2 (blue) lose "};
+
+    long stepCount;                             // steps simulated since the balls were racked
+    boolean deterministic;                      // step with stepTogether(), see there
+    int maxSubsteps = MAX_SUBSTEPS;             // 1 turns sub-stepping off
+    int substeps;                               // the last step was split into, see stepBalls()
+    boolean measured;                           // steps go into Metrics; only the world a SimulationLoop drives
+    int collisions;                             // in the last step, counted with Metrics.ENABLED
+    int contacts;                               // balls hit each other, counting on; the TrajectoryPredictor resets it
+    private long shotStep = -1;                 // the step of the shot still rolling, for Metrics
+    private GameRecorder recorder;              // if the game is being recorded
+
+    World() {
+        this(STANDARD_BALLS);
+    }
+
+    World(int ballCount) {
+        this(TableGeometry.STANDARD, ballCount, null);
+    }
+
+    /**
+     * A world of the given number of balls on the given table, laid out by the
+     * scenario or, if it is null, in the standard rack: the real one for
+     * STANDARD_BALLS balls and a triangle of them otherwise.
+     */
+    World(TableGeometry table, int ballCount, ScenarioGenerator scenario) {
+        this.table = table;
+        this.scenario = scenario;
+        centerX = table.centerX;
+        centerY = table.centerY;
+        firstRow = centerY / 3;
+        holes = table.createHoles();
+
+        state = new BallState(ballCount);
+        balls = new Ball[ballCount];
+        broadPhase = new UniformGrid(ballCount, table.outerWidth(), table.outerHeight());
+        candidates = new int[ballCount];
+        moving = new byte[ballCount];
+        dvx = new double[ballCount];
+        dvy = new double[ballCount];
+        active = new int[ballCount];
+        awake = new long[(ballCount + 63) >>> 6];
+        movedList = new int[ballCount];
+        touchedList = new int[ballCount];
+        events = new PhysicsEventQueue(2 * ballCount + 4);   // a step cannot say more than this
+        rules = new RulesEngine(this);
+        listeners = (type, ball, other, step) -> {
+            rules.event(type, ball, other, step);
+            if (observer != null) {
+                observer.event(type, ball, other, step);
+            }
+            if (trace != null) {
+                trace.event(type, ball, other, step);
+            }
+        };
+
+        for (int i = 0; i < balls.length; i++) {
+            balls[i] = new Ball(this, i);
+        }
+        createInitialBalls();
+    }
+
+    void reset() {
+        events.clear();
+        rules.reset();
+        createInitialBalls();
+        redBallNumber = 0;
+        blueBallNumber = 0;
+        redPlayer = true;
+        stepCount = 0;
+
+        if (recorder != null) {
+            recorder.beginGame(this);
+        }
+    }
+
+    /**
+     * Records this game from now on, and each game after a reset, as the rack
+     * followed by the shots and placements of the white ball.
+     */
+    void setRecorder(GameRecorder recorder) {
+        this.recorder = recorder;
+
+        if (recorder != null) {
+            recorder.beginGame(this);
+        }
+    }
+
+    void createInitialBalls() {
+        if (scenario != null) {
+            scenario.place(state, table);
+        } else if (state.count == STANDARD_BALLS) {
+            createStandardRack();
+        } else {
+            ScenarioGenerator.rack(state, table);
+        }
+
+        state.kind[0] = BallState.CUE;
+        for (int i = 1; i < state.count; i++) {
+            state.kind[i] = i % 2 == 1 ? BallState.RED : BallState.BLUE;
+        }
+        if (state.count > 11) {
+            state.kind[11] = BallState.BLACK;
+        }
+        ballsPlaced();
+    }
+
+    /**
+     * Call after moving balls around in the state by hand, so that the world knows
+     * which balls are on the table and where.
+     */
+    void ballsPlaced() {
+        Ball.setColorBall(balls);
+        broadPhase.rebuild(state);
+
+        activeCount = 0;
+        for (int i = 0; i < state.count; i++) {
+
+            if (!state.isPocketed(i)) {
+                active[activeCount++] = i;
+            }
+        }
+        velocitiesChanged();
+    }
+
+    /**
+     * Call after setting velocities in the state by hand, so that the world knows
+     * which balls are moving. Everything else keeps the awake set up to date as
+     * it goes: a ball is woken when it is shot or hit and put to sleep when a
+     * step leaves it slower than Physics.isMoving() allows, or when it falls in.
+     */
+    void velocitiesChanged() {
+        Arrays.fill(awake, 0);
+        awakeCount = 0;
+
+        for (int k = 0; k < activeCount; k++) {
+            update(active[k]);
+        }
+        if (trace != null) {
+            trace.changed();
+        }
+    }
+
+    private void update(int i) {                 // wake or put to sleep as the velocity says
+        if (!state.isPocketed(i) && Physics.isMoving(state, i)) {
+            wake(i);
+        } else {
+            sleep(i);
+        }
+    }
+
+    private void wake(int i) {
+        long bit = 1L << i;
+
+        if ((awake[i >>> 6] & bit) == 0) {
+            awake[i >>> 6] |= bit;
+            awakeCount++;
+        }
+    }
+
+    private void sleep(int i) {
+        long bit = 1L << i;
+
+        if ((awake[i >>> 6] & bit) != 0) {
+            awake[i >>> 6] &= ~bit;
+            awakeCount--;
+        }
+    }
+
+    private int nextAwake(int from) {            // the first awake ball from this one on, or -1
+        int w = from >>> 6;
+        if (w >= awake.length) {
+            return -1;
+        }
+
+        long word = awake[w] & (-1L << from);
+        while (word == 0) {
+            if (++w == awake.length) {
+                return -1;
+            }
+            word = awake[w];
+        }
+        return (w << 6) + Long.numberOfTrailingZeros(word);
+    }
+
+    int awakeCount() {                          // the number of balls moving
+        return awakeCount;
+    }
+
+    private void createStandardRack() {
+
+        final Coord firstInitialPosition = new Coord(centerX, (centerY / 2) * 3);
+
+        final Coord secondInitialPosition = new Coord(centerX - 2 * ballSize, firstRow);
+        final Coord thirdInitialPosition = new Coord(centerX - 1 * ballSize, firstRow);
+        final Coord fourthInitialPosition = new Coord(centerX, firstRow);
+        final Coord fifthInitialPosition = new Coord(centerX + 1 * ballSize, firstRow);
+        final Coord sixthInitialPosition = new Coord(centerX + 2 * ballSize, firstRow);
+
+        final Coord seventhInitialPosition = new Coord(centerX - 1.5 * ballSize, firstRow + ballSize - 4);
+        final Coord eigthInitialPosition = new Coord(centerX - 0.5 * ballSize, firstRow + ballSize - 4);
+        final Coord ninethInitialPosition = new Coord(centerX + 0.5 * ballSize, firstRow + ballSize - 4);
+        final Coord tenthInitialPosition = new Coord(centerX + 1.5 * ballSize, firstRow + ballSize - 4);
+
+        final Coord eleventhInitialPosition = new Coord(centerX - ballSize, firstRow + 2 * ballSize - 8);
+        final Coord twelvethInitialPosition = new Coord(centerX, firstRow + 2 * ballSize - 8); // BLACK
+        final Coord thirteenthInitialPosition = new Coord(centerX + ballSize, firstRow + 2 * ballSize - 8);
+
+        final Coord fourteenthInitialPosition = new Coord(centerX - 0.5 * ballSize, firstRow + 3 * ballSize - 12);
+        final Coord fifteenthInitialPosition = new Coord(centerX + 0.5 * ballSize, firstRow + 3 * ballSize - 12);
+
+        final Coord sixteenthInitialPosition = new Coord(centerX, firstRow + 4 * ballSize - 16);
+
+        state.place(0, firstInitialPosition.x, firstInitialPosition.y);
+        state.place(1, secondInitialPosition.x, secondInitialPosition.y);
+        state.place(2, thirdInitialPosition.x, thirdInitialPosition.y);
+        state.place(3, fourthInitialPosition.x, fourthInitialPosition.y);
+        state.place(4, fifthInitialPosition.x, fifthInitialPosition.y);
+        state.place(5, sixthInitialPosition.x, sixthInitialPosition.y);
+        state.place(6, seventhInitialPosition.x, seventhInitialPosition.y);
+        state.place(7, eigthInitialPosition.x, eigthInitialPosition.y);
+        state.place(8, ninethInitialPosition.x, ninethInitialPosition.y);
+        state.place(9, tenthInitialPosition.x, tenthInitialPosition.y);
+        state.place(10, eleventhInitialPosition.x, eleventhInitialPosition.y);
+        state.place(11, twelvethInitialPosition.x, twelvethInitialPosition.y);
+        state.place(12, thirteenthInitialPosition.x, thirteenthInitialPosition.y);
+        state.place(13, fourteenthInitialPosition.x, fourteenthInitialPosition.y);
+        state.place(14, fifteenthInitialPosition.x, fifteenthInitialPosition.y);
+        state.place(15, sixteenthInitialPosition.x, sixteenthInitialPosition.y);
+    }
+
+    boolean placeWhiteBall(double xPos, double yPos) {
+        Coord coordClick = new Coord(xPos, yPos);
+        if (xPos < table.maxX && xPos > table.minX) {
+
+            if (yPos < table.height + table.wallThickness && yPos > table.wallThickness) {
+
+                for (int k = 0; k < activeCount; k++) {
+                    if (Coord.distance(coordClick, balls[active[k]].position()) < 2 * Ball.RADIUS + Ball.BORDER_THICKNESS) {
+
+                        return false;
+                    }
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    boolean isWhiteBallInHole() {
+        return state.isPocketed(0);
+    }
+
+    void placeWhiteBallAt(double xPos, double yPos) {
+        if (state.isPocketed(0)) {              // the white ball has the lowest index, so it goes first
+            System.arraycopy(active, 0, active, 1, activeCount);
+            active[0] = 0;
+            activeCount++;
+        }
+        state.place(0, xPos, yPos);
+        broadPhase.moved(state, 0);
+        sleep(0);
+        if (trace != null) {
+            trace.touched(0);
+        }
+
+        if (recorder != null) {
+            recorder.place(stepCount, xPos, yPos);
+        }
+    }
+
+    int activeCount() {                         // the number of balls on the table
+        return activeCount;
+    }
+
+    int activeBall(int k) {
+        return active[k];
+    }
+
+    void setMotionKernel(MotionKernel kernel) { // eg MotionKernel.SCALAR to cross-check the SIMD one
+        this.kernel = kernel;
+    }
+
+    void setTrace(TraceSink trace) {            // writes every step from now on, null to stop
+        this.trace = trace;
+    }
+
+    void setBroadPhase(BroadPhase broadPhase) {  // eg a BruteForceBroadPhase to cross-check the grid
+        this.broadPhase = broadPhase;
+        broadPhase.rebuild(state);
+    }
+
+    /**
+     * Performs one simulation step for the balls that are on the table. When the
+     * last ball comes to rest after a shot without anything being sunk, the turn
+     * passes to the other player.
+     */
+    void step() {
+        if (!Metrics.ENABLED || !measured) {    // not the searches', previews' and batches' worlds
+            stepBalls();
+            return;
+        }
+
+        Metrics.StepEvent event = new Metrics.StepEvent();
+        event.begin();
+        long start = System.nanoTime();
+        collisions = 0;
+        stepBalls();
+        Metrics.stepped(this, System.nanoTime() - start, event);
+
+        if (shotStep >= 0 && allBallStopped()) {
+            Metrics.shotResolved(stepCount - shotStep);
+            shotStep = -1;
+        }
+    }
+
+    /**
+     * A hard shot moves a ball further in one step than the contacts and the walls
+     * can follow: it sinks deep into the ball it hits, or passes it altogether. So
+     * a step is split into as many sub-steps as the fastest ball needs to move at
+     * most MAX_DISPLACEMENT in each, up to maxSubsteps. Friction is shared out over
+     * the sub-steps, so the balls slow down as much as in one step. Most steps,
+     * and every step of an ordinary shot, have no ball that fast, and are taken
+     * whole exactly as without sub-stepping.
+     */
+    private void stepBalls() {
+        substeps = substeps();
+        double dt = 1.0 / substeps;
+
+        for (int n = 0; n < substeps; n++) {
+
+            if (deterministic) {
+                stepTogether(dt);
+            } else {
+                for (int i = nextAwake(0); i >= 0; i = nextAwake(i + 1)) {   // balls hit further on are woken in time
+                    moveBall(i, dt);
+                }
+            }
+        }
+        stepCount++;
+        checkShotEnded();
+
+        if (trace != null) {
+            trace.tick(this);
+        }
+    }
+
+    private int substeps() {
+        double fastest = 0;                     // squared
+        for (int i = nextAwake(0); i >= 0; i = nextAwake(i + 1)) {
+            fastest = Math.max(fastest, state.vx[i] * state.vx[i] + state.vy[i] * state.vy[i]);
+        }
+
+        if (maxSubsteps <= 1 || fastest <= MAX_DISPLACEMENT * MAX_DISPLACEMENT) {
+            return 1;
+        }
+        return (int) Math.min(maxSubsteps, Math.ceil(Math.sqrt(fastest) / MAX_DISPLACEMENT));
+    }
+
+    /**
+     * The deterministic (sub-)step. Ball.move() resolves each contact as soon as the
+     * moving ball reaches it, so a ball sees the velocities of the balls moved
+     * before it in the same step and the outcome depends on the order of the
+     * balls. Here every moving ball moves first; then all contacts are found and
+     * their impulses worked out from those same velocities and added up, pair by
+     * pair in order of ball numbers; only then do the velocities change. Finally
+     * the balls that moved are checked against the holes in order of number.
+     * <p>
+     * When many balls are moving they are all moved by the MotionKernel at once,
+     * which gives the same result as moving them one by one.
+     * <p>
+     * The arithmetic is IEEE double throughout, which Java evaluates the same way
+     * on every JVM, and sqrt is exactly rounded, so a shot gives the same bits
+     * everywhere. Shot uses StrictMath for its angles for the same reason.
+     */
+    void stepTogether(double dt) {
+        BallState s = state;
+        int movedCount = 0;
+        int touchedCount = 0;
+
+        boolean dense = kernel != null && awakeCount * DENSE_AWAKE >= s.count;
+        if (dense) {
+            kernel.move(s, table, dt, 0, s.count);   // exactly the awake balls are moving
+        }
+
+        for (int i = nextAwake(0); i >= 0; i = nextAwake(i + 1)) {
+            moving[i] = 1;
+            movedList[movedCount++] = i;
+
+            if (!dense) {
+                Physics.integrate(s, i, dt);
+                Physics.bounceWalls(table, s, i);
+            }
+            broadPhase.moved(s, i);
+        }
+
+        for (int m = 0; m < movedCount; m++) {
+            int i = movedList[m];
+            int n = broadPhase.candidates(s, i, candidates);
+
+            for (int c = 0; c < n; c++) {
+                int j = candidates[c];
+
+                if (((moving[j] & 1) == 0 || j > i) && Physics.touching(s, i, j)) {   // each pair once
+                    if (Physics.addHit(s, Math.min(i, j), Math.max(i, j), dvx, dvy)) {
+                        contact(i, j);
+                        if (Metrics.ENABLED) {
+                            collisions++;
+                        }
+                    }
+                    if ((moving[j] & 2) == 0) {
+                        moving[j] |= 2;
+                        touchedList[touchedCount++] = j;
+                    }
+                    if ((moving[i] & 2) == 0) {
+                        moving[i] |= 2;
+                        touchedList[touchedCount++] = i;
+                    }
+                }
+            }
+        }
+
+        for (int t = 0; t < touchedCount; t++) {
+            int i = touchedList[t];
+            s.vx[i] += dvx[i];
+            s.vy[i] += dvy[i];
+            dvx[i] = 0;
+            dvy[i] = 0;
+            update(i);
+            moving[i] &= 1;
+        }
+
+        for (int m = 0; m < movedCount; m++) {   // in increasing order, as the awake set was walked
+            int i = movedList[m];
+            moving[i] = 0;
+            update(i);
+
+            for (int h = 0; h < holes.length; h++) {
+
+                if (holes[h].captures(s.x[i], s.y[i])) {
+                    ballInHole(i, h);
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * A checksum of everything the simulation depends on: the exact bits of the
+     * positions and velocities, which balls are on the table and the state of the
+     * rules. Two runs that agree on it after every step took the same course.
+     */
+    long checksum() {
+        BallState s = state;
+        long h = s.count;
+
+        for (int i = 0; i < s.count; i++) {
+            h = mix(h, Double.doubleToRawLongBits(s.x[i]));
+            h = mix(h, Double.doubleToRawLongBits(s.y[i]));
+            h = mix(h, Double.doubleToRawLongBits(s.vx[i]));
+            h = mix(h, Double.doubleToRawLongBits(s.vy[i]));
+            h = mix(h, s.status[i]);
+        }
+        h = mix(h, (redPlayer ? 1 : 0) | (ballShoot ? 2 : 0));
+        h = mix(h, (long) redBallNumber << 32 | blueBallNumber);
+        return mix(h, stepCount);
+    }
+
+    private static long mix(long h, long value) {
+        h = (h ^ value) * 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 29);
+    }
+
+    /**
+     * Called at the end of each step: when the last ball has come to rest the
+     * shot is over. Then everything the step did is handed to the rules.
+     */
+    void checkShotEnded() {
+        if (ballShoot && allBallStopped()) {
+            ballShoot = false;
+            emit(PhysicsEventQueue.SHOT_ENDED, 0, 0);
+        }
+        applyRules();
+    }
+
+    void applyRules() {                         // hands the events so far to the rules
+        events.drain(observer == null && trace == null ? rules : listeners);
+    }
+
+    private void emit(byte type, int ball, int other) {
+        if (!events.offer(type, ball, other, stepCount)) {
+            applyRules();                       // only if the queue is smaller than a step needs
+            events.offer(type, ball, other, stepCount);
+        }
+    }
+
+    void contact(int i, int j) {                // balls i and j hit each other
+        contacts++;
+        if (trace != null) {
+            trace.touched(i);
+            trace.touched(j);
+        }
+        if ((i == 0 || j == 0) && rules.wantsFirstContact()) {
+            emit(PhysicsEventQueue.FIRST_CONTACT, 0, i + j);
+        }
+    }
+
+    /**
+     * Steps until every ball is at rest, or until maxSteps steps have been taken.
+     * Returns the number of steps taken.
+     */
+    int runUntilRest(int maxSteps) {
+        int steps = 0;
+        do {
+            step();
+            steps++;
+        } while (!allBallStopped() && steps < maxSteps);
+        return steps;
+    }
+
+    boolean allBallStopped() {
+        return awakeCount == 0;
+    }
+
+    void shoot(double vx, double vy) {          // give the white ball the velocity of a shot
+        state.vx[0] = vx;
+        state.vy[0] = vy;
+        update(0);
+        ballShoot = true;
+        shotStep = stepCount;
+        emit(PhysicsEventQueue.SHOT, 0, 0);
+        applyRules();
+
+        if (recorder != null) {
+            recorder.shot(stepCount, vx, vy);
+        }
+    }
+
+    void shoot(Shot shot) {
+        shoot(shot.vx(), shot.vy());
+    }
+
+    /**
+     * Makes this world an exact copy of the other one, balls and rules alike. The
+     * copy can then be simulated without disturbing the original, and is not
+     * recorded even if the original is. Both must have as many balls on tables
+     * of the same geometry.
+     */
+    void copyFrom(World other) {
+        state.copyFrom(other.state);
+        redPlayer = other.redPlayer;
+        ballShoot = other.ballShoot;
+        redBallNumber = other.redBallNumber;
+        blueBallNumber = other.blueBallNumber;
+        resultTitle = other.resultTitle;
+        resultMessage = other.resultMessage;
+        stepCount = other.stepCount;
+        deterministic = other.deterministic;
+        maxSubsteps = other.maxSubsteps;
+        rules.copyFrom(other.rules);
+
+        System.arraycopy(other.active, 0, active, 0, other.activeCount);
+        activeCount = other.activeCount;
+        System.arraycopy(other.awake, 0, awake, 0, awake.length);
+        awakeCount = other.awakeCount;
+        broadPhase.rebuild(state);
+        Ball.setColorBall(balls);
+        if (trace != null) {
+            trace.changed();
+        }
+    }
+
+    World copy() {
+        World copy = new World(table, state.count, scenario);
+        copy.copyFrom(this);
+        return copy;
+    }
+
+    /**
+     * Moves one ball one step: it rolls, bounces off the walls, hits the balls
+     * it touches and may fall into a hole.
+     */
+    void moveBall(int i) {
+        moveBall(i, 1);
+    }
+
+    private void moveBall(int i, double dt) {   // dt is the part of a step, for sub-steps
+        BallState s = state;
+
+        if (Physics.isMoving(s, i)) {
+            Physics.integrate(s, i, dt);
+            Physics.bounceWalls(table, s, i);
+            broadPhase.moved(s, i);
+
+            int n = broadPhase.candidates(s, i, candidates);
+            for (int k = 0; k < n; k++) {
+                int j = candidates[k];
+
+                if (Physics.touching(s, i, j)) {
+                    if (Physics.ballsHit(s, i, j)) {
+                        contact(i, j);
+                        if (Metrics.ENABLED) {
+                            collisions++;
+                        }
+                    }
+                    update(j);
+                }
+            }
+            update(i);
+
+            for (int h = 0; h < holes.length; h++) {
+
+                if (holes[h].captures(s.x[i], s.y[i])) {
+                    ballInHole(i, h);
+                    break;
+                }
+            }
+        }
+    }
+
+    void ballInHole(int ball, int hole) {       // take the ball off the table and tell the rules
+        takeOffTable(ball);
+        emit(state.kind[ball] == BallState.CUE ? PhysicsEventQueue.SCRATCH : PhysicsEventQueue.POCKETED, ball, hole);
+    }
+
+    private void takeOffTable(int ball) {        // it stays where it fell in, but is no longer simulated
+        state.vx[ball] = 0;
+        state.vy[ball] = 0;
+        state.status[ball] = BallState.POCKETED;
+        broadPhase.removed(ball);
+        sleep(ball);
+
+        for (int k = 0; k < activeCount; k++) {
+
+            if (active[k] == ball) {
+                System.arraycopy(active, k + 1, active, k, activeCount - k - 1);
+                activeCount--;
+                break;
+            }
+        }
+    }
+}
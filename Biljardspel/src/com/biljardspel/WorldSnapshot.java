@@ -0,0 +1,170 @@
+package com.biljardspel;
+
+import java.nio.ByteBuffer;
+
+/**
+ * ****************************************************************************************
+ * WorldSnapshot
+ * <p>
+ * Writes everything a World needs to carry on (the balls, which of them are on
+ * the table, whose turn it is and the rest of the rules) into a fixed number of
+ * longs, and reads it back. A snapshot has no objects of its own, so any number
+ * of them fit in one long[] or ByteBuffer, eg as an undo stack or the nodes of a
+ * search, and neither writing nor restoring allocates.
+ * <p>
+ * The layout, in longs:
+ * <pre>
+ *   0                 the step count
+ *   1                 the rules: bit 0 redPlayer, 2 ballShoot, 3 deterministic,
+ *                     4-7 the result (0 for none, else 1 + its index in RESULT_MESSAGES),
+ *                     16-31 redBallNumber, 32-47 blueBallNumber,
+ *                     48-49 the state of the RulesEngine, 50 scratch, 51 foul,
+ *                     52-55 the kind of the first ball touched plus one
+ *   2 + 4i .. 5 + 4i  x, y, vx and vy of ball i, as raw double bits
+ *   2 + 4n ..         status and kind of the balls, a byte each (kind << 1 | status),
+ *                     eight to a long
+ * </pre>
+ * What the shot rolling has sunk so far is not written: it is the balls off the
+ * table less the score, and the rules count it again on reading.
+ * A snapshot can only be restored into a world with the same number of balls.
+ */
+class WorldSnapshot {
+
+    private WorldSnapshot() { }
+
+    static int longs(int ballCount) {
+        return 2 + 4 * ballCount + (ballCount + 7) / 8;
+    }
+
+    static int bytes(int ballCount) {
+        return 8 * longs(ballCount);
+    }
+
+    static void write(World world, long[] out, int offset) {
+        BallState s = world.state;
+        out[offset] = world.stepCount;
+        out[offset + 1] = rules(world);
+
+        int k = offset + 2;
+        for (int i = 0; i < s.count; i++) {
+            out[k++] = Double.doubleToRawLongBits(s.x[i]);
+            out[k++] = Double.doubleToRawLongBits(s.y[i]);
+            out[k++] = Double.doubleToRawLongBits(s.vx[i]);
+            out[k++] = Double.doubleToRawLongBits(s.vy[i]);
+        }
+        for (int i = 0; i < s.count; i += 8) {
+            out[k++] = flags(s, i);
+        }
+    }
+
+    static void read(World world, long[] in, int offset) {
+        BallState s = world.state;
+        world.stepCount = in[offset];
+        setRules(world, in[offset + 1]);
+
+        int k = offset + 2;
+        for (int i = 0; i < s.count; i++) {
+            s.x[i] = Double.longBitsToDouble(in[k++]);
+            s.y[i] = Double.longBitsToDouble(in[k++]);
+            s.vx[i] = Double.longBitsToDouble(in[k++]);
+            s.vy[i] = Double.longBitsToDouble(in[k++]);
+        }
+        for (int i = 0; i < s.count; i += 8) {
+            setFlags(s, i, in[k++]);
+        }
+        world.rules.recount();
+        world.ballsPlaced();
+    }
+
+    /**
+     * The same, at the given byte offset of a buffer, leaving its position alone.
+     */
+    static void write(World world, ByteBuffer out, int offset) {
+        BallState s = world.state;
+        out.putLong(offset, world.stepCount);
+        out.putLong(offset + 8, rules(world));
+
+        int k = offset + 16;
+        for (int i = 0; i < s.count; i++, k += 32) {
+            out.putDouble(k, s.x[i]);
+            out.putDouble(k + 8, s.y[i]);
+            out.putDouble(k + 16, s.vx[i]);
+            out.putDouble(k + 24, s.vy[i]);
+        }
+        for (int i = 0; i < s.count; i += 8, k += 8) {
+            out.putLong(k, flags(s, i));
+        }
+    }
+
+    static void read(World world, ByteBuffer in, int offset) {
+        BallState s = world.state;
+        world.stepCount = in.getLong(offset);
+        setRules(world, in.getLong(offset + 8));
+
+        int k = offset + 16;
+        for (int i = 0; i < s.count; i++, k += 32) {
+            s.x[i] = in.getDouble(k);
+            s.y[i] = in.getDouble(k + 8);
+            s.vx[i] = in.getDouble(k + 16);
+            s.vy[i] = in.getDouble(k + 24);
+        }
+        for (int i = 0; i < s.count; i += 8, k += 8) {
+            setFlags(s, i, in.getLong(k));
+        }
+        world.rules.recount();
+        world.ballsPlaced();
+    }
+
+    static long rules(World world) {
+        int result = 0;
+        for (int r = 0; r < World.RESULT_MESSAGES.length; r++) {
+
+            if (world.resultMessage == World.RESULT_MESSAGES[r]) {
+                result = r + 1;
+            }
+        }
+
+        return (world.redPlayer ? 1L : 0)
+                | (world.ballShoot ? 4L : 0)
+                | (world.deterministic ? 8L : 0)
+                | (long) result << 4
+                | (long) (world.redBallNumber & 0xFFFF) << 16
+                | (long) (world.blueBallNumber & 0xFFFF) << 32
+                | (long) world.rules.state << 48
+                | (world.rules.scratch ? 1L << 50 : 0)
+                | (world.rules.foul ? 1L << 51 : 0)
+                | (long) (world.rules.firstContactKind + 1) << 52;
+    }
+
+    private static void setRules(World world, long rules) {
+        world.redPlayer = (rules & 1) != 0;
+        world.ballShoot = (rules & 4) != 0;
+        world.deterministic = (rules & 8) != 0;
+        world.redBallNumber = (int) (rules >>> 16) & 0xFFFF;
+        world.blueBallNumber = (int) (rules >>> 32) & 0xFFFF;
+        world.rules.state = (byte) ((rules >>> 48) & 3);
+        world.rules.scratch = (rules & 1L << 50) != 0;
+        world.rules.foul = (rules & 1L << 51) != 0;
+        world.rules.firstContactKind = (byte) (((rules >>> 52) & 0xF) - 1);
+
+        int result = (int) (rules >>> 4) & 0xF;
+        world.resultTitle = result == 0 ? null : (result % 2 == 1 ? World.WINNER : World.LOSER);
+        world.resultMessage = result == 0 ? null : World.RESULT_MESSAGES[result - 1];
+    }
+
+    private static long flags(BallState s, int first) {
+        long flags = 0;
+        for (int i = first; i < Math.min(first + 8, s.count); i++) {
+            flags |= (long) ((s.kind[i] << 1 | s.status[i]) & 0xFF) << 8 * (i - first);
+        }
+        return flags;
+    }
+
+    private static void setFlags(BallState s, int first, long flags) {
+        for (int i = first; i < Math.min(first + 8, s.count); i++) {
+            int b = (int) (flags >>> 8 * (i - first)) & 0xFF;
+            s.status[i] = (byte) (b & 1);
+            s.kind[i] = (byte) (b >>> 1);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.biljardspel;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ****************************************************************************************
+ * AllBallStoppedBenchmark
+ * <p>
+ * The rest test that runs every step and on every mouse event, on a table where
+ * everything is still and on one in the middle of the break.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class AllBallStoppedBenchmark {
+
+    @Param({"atRest", "midShot"})
+    public String table;
+
+    private World world;
+
+    @Setup
+    public void setUp() {
+        world = new World();
+
+        if (table.equals("midShot")) {
+            world.shoot(Racks.BREAK);
+            for (int k = 0; k < 40; k++) {
+                world.step();
+            }
+        }
+    }
+
+    @Benchmark
+    public boolean allBallStopped() {
+        return world.allBallStopped();
+    }
+}
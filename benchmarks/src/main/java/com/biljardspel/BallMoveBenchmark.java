@@ -0,0 +1,46 @@
+package com.biljardspel;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ****************************************************************************************
+ * BallMoveBenchmark
+ * <p>
+ * One step of a single moving ball with Ball.move(): rolling, walls, contacts with
+ * the rack and the holes. Whenever the white ball has stopped or fallen in, the
+ * table is put back and the next of a fixed list of shots is played.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class BallMoveBenchmark {
+
+    private World template;
+    private World world;
+    private Ball cue;
+    private Shot[] shots;
+    private int nextShot;
+
+    @Setup
+    public void setUp() {
+        template = new World();
+        world = template.copy();
+        cue = world.balls[0];
+        shots = Racks.shots(64, Racks.SEED);
+    }
+
+    @Benchmark
+    public void moveOneTick() {
+        if (!cue.isMoving() || world.state.isPocketed(0)) {
+            world.copyFrom(template);
+            world.shoot(shots[nextShot]);
+            nextShot = (nextShot + 1) % shots.length;
+        }
+        cue.move();
+    }
+}
@@ -0,0 +1,41 @@
+package com.biljardspel;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * ****************************************************************************************
+ * BenchmarkMain
+ * <p>
+ * Runs the benchmarks with the gc profiler, so that each result comes with its
+ * allocation rate next to the operations per second, and writes them to
+ * benchmarks.json for comparing runs. The arguments are the usual JMH ones, for
+ * example a regular expression choosing which benchmarks to run.
+ * <p>
+ * java -jar benchmarks/target/benchmarks.jar [ClusterBenchmark] [-p balls=4096]
+ */
+public class BenchmarkMain {
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        OptionsBuilder options = new OptionsBuilder();
+
+        if (commandLine.getIncludes().isEmpty()) {
+            options.include("com\\.biljardspel\\..*Benchmark");
+        }
+
+        Options built = options
+                .parent(commandLine)
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result("benchmarks.json")
+                .build();
+        new Runner(built).run();
+    }
+}
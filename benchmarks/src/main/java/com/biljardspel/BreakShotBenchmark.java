@@ -0,0 +1,46 @@
+package com.biljardspel;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ****************************************************************************************
+ * BreakShotBenchmark
+ * <p>
+ * The break from the standard rack, simulated until every ball is at rest, either
+ * step by step or with the EventSimulation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class BreakShotBenchmark {
+
+    @Param({"stepped", "events"})
+    public String engine;
+
+    private World template;
+    private World world;
+
+    @Setup
+    public void setUp() {
+        template = new World();
+        world = template.copy();
+    }
+
+    @Benchmark
+    public double breakToRest() {
+        world.copyFrom(template);
+        world.shoot(Racks.BREAK);
+
+        if (engine.equals("events")) {
+            new EventSimulation(world).runUntilRest(100000);
+        } else {
+            world.runUntilRest(100000);
+        }
+        return world.state.x[0];
+    }
+}
@@ -0,0 +1,54 @@
+package com.biljardspel;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ****************************************************************************************
+ * ClusterBenchmark
+ * <p>
+ * A hard shot into a tightly packed cluster of balls, simulated for a fixed number
+ * of steps. This is where the broad phase matters: most of the work is finding
+ * and resolving contacts.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class ClusterBenchmark {
+
+    static final int STEPS = 100;
+
+    @Param({"16", "256", "4096"})
+    public int balls;
+
+    @Param({"grid", "bruteForce"})
+    public String broadPhase;
+
+    private World template;
+    private World world;
+
+    @Setup
+    public void setUp() {
+        template = ScenarioGenerator.world(TableGeometry.STANDARD, balls, ScenarioGenerator.CLUSTER, Racks.SEED);
+        world = template.copy();
+
+        if (broadPhase.equals("bruteForce")) {
+            world.setBroadPhase(new BruteForceBroadPhase());
+        }
+    }
+
+    @Benchmark
+    public double shotIntoCluster() {
+        world.copyFrom(template);
+        world.shoot(Racks.BREAK);
+
+        for (int k = 0; k < STEPS; k++) {
+            world.step();
+        }
+        return world.state.x[0];
+    }
+}
@@ -0,0 +1,67 @@
+package com.biljardspel;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ****************************************************************************************
+ * MotionKernelBenchmark
+ * <p>
+ * The MotionKernel alone, on scattered balls that are all moving: one call moves
+ * every ball of the table a step. The state is put back every RESET calls, before
+ * the balls have slowed down much. The vector kernel needs the incubating Vector
+ * API, which the forked JVM is given.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Djava.awt.headless=true", "--add-modules=jdk.incubator.vector"})
+public class MotionKernelBenchmark {
+
+    static final int RESET = 64;
+
+    @Param({"1000", "10000"})
+    public int balls;
+
+    @Param({"scalar", "vector"})
+    public String kernel;
+
+    private BallState template;
+    private BallState state;
+    private TableGeometry table;
+    private MotionKernel motion;
+    private int calls;
+
+    @Setup
+    public void setUp() {
+        motion = kernel.equals("vector") ? MotionKernel.load() : MotionKernel.SCALAR;
+        if (motion == null) {
+            throw new IllegalStateException("The vector kernel is not on the class path");
+        }
+
+        table = TableGeometry.scaledFor(balls, TableGeometry.NO_POCKETS);
+        World world = ScenarioGenerator.world(table, balls, ScenarioGenerator.SCATTER, Racks.SEED);
+        Shot[] shots = Racks.shots(balls, Racks.SEED);
+        template = world.state;
+
+        for (int i = 0; i < balls; i++) {
+            template.vx[i] = shots[i].vx();
+            template.vy[i] = shots[i].vy();
+        }
+        state = new BallState(balls);
+        state.copyFrom(template);
+    }
+
+    @Benchmark
+    public double move() {
+        if (++calls == RESET) {
+            state.copyFrom(template);
+            calls = 0;
+        }
+        motion.move(state, table, 1, 0, balls);
+        return state.x[0];
+    }
+}
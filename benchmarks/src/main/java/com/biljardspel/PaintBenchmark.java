@@ -0,0 +1,66 @@
+package com.biljardspel;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ****************************************************************************************
+ * PaintBenchmark
+ * <p>
+ * Table.paintComponent painted into an offscreen image so that it runs without a
+ * display: a whole frame, and a frame where only the area around one ball is
+ * dirty, as when a single ball rolls.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class PaintBenchmark {
+
+    private Table table;
+    private BufferedImage image;
+    private Graphics2D graphics;
+    private Rectangle dirtyBall;
+
+    @Setup
+    public void setUp() {
+        World world = new World();
+        world.shoot(Racks.BREAK);
+        for (int k = 0; k < 40; k++) {         // the balls spread out over the table
+            world.step();
+        }
+
+        table = new Table(world);
+        Dimension size = table.getPreferredSize();
+        table.setSize(size);
+        image = new BufferedImage(size.width, size.height, BufferedImage.TYPE_INT_RGB);
+        graphics = image.createGraphics();
+        BallState s = world.state;
+        dirtyBall = new Rectangle((int) (s.x[0] - Ball.RADIUS) - 2, (int) (s.y[0] - Ball.RADIUS) - 2,
+                (int) Ball.DIAMETER + 4, (int) Ball.DIAMETER + 4);
+    }
+
+    @TearDown
+    public void tearDown() {
+        graphics.dispose();
+    }
+
+    @Benchmark
+    public BufferedImage paintComponent() {
+        graphics.setClip(null);
+        table.paintComponent(graphics);
+        return image;
+    }
+
+    @Benchmark
+    public BufferedImage paintOneBall() {
+        graphics.setClip(dirtyBall);
+        table.paintComponent(graphics);
+        return image;
+    }
+}
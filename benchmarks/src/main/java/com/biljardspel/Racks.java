@@ -0,0 +1,28 @@
+package com.biljardspel;
+
+import java.util.SplittableRandom;
+
+/**
+ * ****************************************************************************************
+ * Racks
+ * <p>
+ * Fixed shots for the benchmarks; the positions come from the ScenarioGenerator.
+ * Everything random is drawn from a seeded generator, so two runs of a benchmark
+ * simulate exactly the same shots.
+ */
+class Racks {
+
+    static final long SEED = 42;
+
+    static final Shot BREAK = new Shot(-Math.PI / 2 + 0.01, 10);  // straight up the table into the rack
+
+    static Shot[] shots(int count, long seed) {  // hard shots in random directions
+        SplittableRandom random = new SplittableRandom(seed);
+        Shot[] shots = new Shot[count];
+
+        for (int k = 0; k < count; k++) {
+            shots[k] = new Shot(random.nextDouble(-Math.PI, Math.PI), random.nextDouble(5, 15));
+        }
+        return shots;
+    }
+}
@@ -0,0 +1,63 @@
+package com.biljardspel;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ****************************************************************************************
+ * ScalingBenchmark
+ * <p>
+ * How the step scales with the number of balls, from the real game up to ten
+ * thousand balls. The table grows with the count (TableGeometry.scaledFor()) so
+ * the balls always cover the same part of it, and has no holes, so the count
+ * stays what it says. In each scenario one ball in SHOT_EVERY is given a hard
+ * shot in a random direction, so that the amount of motion grows with the table,
+ * and then a fixed number of steps is simulated.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class ScalingBenchmark {
+
+    static final int STEPS = 100;
+    static final int SHOT_EVERY = 16;
+
+    @Param({"16", "100", "1000", "10000"})
+    public int balls;
+
+    @Param({"rack", "scatter", "cluster"})
+    public String scenario;
+
+    private World template;
+    private World world;
+    private Shot[] shots;
+
+    @Setup
+    public void setUp() {
+        TableGeometry table = TableGeometry.scaledFor(balls, TableGeometry.NO_POCKETS);
+        template = ScenarioGenerator.world(table, balls, ScenarioGenerator.kind(scenario), Racks.SEED);
+        world = template.copy();
+        shots = Racks.shots((balls + SHOT_EVERY - 1) / SHOT_EVERY, Racks.SEED);
+    }
+
+    @Benchmark
+    public double randomShots() {
+        world.copyFrom(template);
+        BallState s = world.state;
+
+        for (int k = 0; k < shots.length; k++) {
+            s.vx[k * SHOT_EVERY] = shots[k].vx();
+            s.vy[k * SHOT_EVERY] = shots[k].vy();
+        }
+        world.velocitiesChanged();
+
+        for (int k = 0; k < STEPS; k++) {
+            world.step();
+        }
+        return world.state.x[0];
+    }
+}
@@ -0,0 +1,65 @@
+package com.biljardspel;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ****************************************************************************************
+ * SnapshotBenchmark
+ * <p>
+ * Writing a world mid-break into a flat snapshot and restoring it, into a long[]
+ * and into a direct ByteBuffer, next to World.copyFrom for comparison.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class SnapshotBenchmark {
+
+    private World world;
+    private World other;
+    private long[] longs;
+    private ByteBuffer buffer;
+
+    @Setup
+    public void setUp() {
+        world = new World();
+        world.shoot(Racks.BREAK);
+        for (int k = 0; k < 40; k++) {
+            world.step();
+        }
+        other = world.copy();
+        longs = new long[WorldSnapshot.longs(world.state.count)];
+        buffer = ByteBuffer.allocateDirect(WorldSnapshot.bytes(world.state.count));
+        WorldSnapshot.write(world, longs, 0);
+        WorldSnapshot.write(world, buffer, 0);
+    }
+
+    @Benchmark
+    public long[] writeLongs() {
+        WorldSnapshot.write(world, longs, 0);
+        return longs;
+    }
+
+    @Benchmark
+    public World restoreLongs() {
+        WorldSnapshot.read(other, longs, 0);
+        return other;
+    }
+
+    @Benchmark
+    public World restoreBuffer() {
+        WorldSnapshot.read(other, buffer, 0);
+        return other;
+    }
+
+    @Benchmark
+    public World copyFrom() {
+        other.copyFrom(world);
+        return other;
+    }
+}
@@ -0,0 +1,33 @@
+package com.biljardspel;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * The grid is only a faster way to find the balls that may touch: a world must
+ * step the same with it as when every pair is tried.
+ */
+class BroadPhaseTest {
+
+    @Test
+    void gridStepsAsEveryPair() {
+        World grid = Shots.deterministic();
+        World brute = Shots.deterministic();
+        brute.setBroadPhase(new BruteForceBroadPhase());
+
+        assertEquals(Shots.play(brute, 3, 40), Shots.play(grid, 3, 40));
+    }
+
+    @Test
+    void gridStepsAsEveryPairInACrowd() {
+        TableGeometry table = TableGeometry.scaledFor(200, TableGeometry.SIX_POCKETS);
+        World grid = ScenarioGenerator.world(table, 200, ScenarioGenerator.CLUSTER, 9);
+        World brute = ScenarioGenerator.world(table, 200, ScenarioGenerator.CLUSTER, 9);
+        grid.deterministic = true;
+        brute.deterministic = true;
+        brute.setBroadPhase(new BruteForceBroadPhase());
+
+        assertEquals(Shots.play(brute, 5, 5), Shots.play(grid, 5, 5));
+    }
+}
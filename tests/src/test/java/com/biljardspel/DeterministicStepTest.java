@@ -0,0 +1,41 @@
+package com.biljardspel;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * World.stepTogether() must take the same course, to the bit, every time it is
+ * given the same shots.
+ */
+class DeterministicStepTest {
+
+    @Test
+    void sameShotsGiveTheSameCourse() {
+        World first = Shots.deterministic();
+        World second = Shots.deterministic();
+
+        assertEquals(Shots.play(first, 3, 40), Shots.play(second, 3, 40));
+        assertEquals(first.checksum(), second.checksum());
+        assertEquals(first.stepCount, second.stepCount);
+    }
+
+    @Test
+    void courseOfKnownShotsIsUnchanged() {          // a change that moves a single bit must change this on purpose
+        World world = Shots.deterministic();
+
+        assertEquals(0x654054741f3c873fL, Shots.play(world, 3, 40));
+        assertEquals(10931, world.stepCount);
+        assertEquals(7, world.redBallNumber);
+        assertEquals(5, world.blueBallNumber);
+    }
+
+    @Test
+    void copyGoesOnTheSameAsTheOriginal() {
+        World world = Shots.deterministic();
+        Shots.play(world, 11, 5);
+        World copy = world.copy();
+
+        assertEquals(Shots.play(world, 12, 10), Shots.play(copy, 12, 10));
+    }
+}
@@ -0,0 +1,77 @@
+package com.biljardspel;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import java.util.SplittableRandom;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The SIMD kernel must give the same bits as the scalar one, for any range of
+ * balls, so that a world steps the same with or without it.
+ */
+class MotionKernelTest {
+
+    private final MotionKernel vector = new VectorMotionKernel();
+
+    @Test
+    void vectorKernelIsFound() {
+        assertNotNull(MotionKernel.load());
+    }
+
+    @Test
+    void vectorMovesBallsAsScalar() {
+        TableGeometry table = TableGeometry.STANDARD;
+        SplittableRandom random = new SplittableRandom(21);
+
+        for (int round = 0; round < 200; round++) {
+            int count = 1 + random.nextInt(70);
+            BallState scalarState = new BallState(count);
+            for (int i = 0; i < count; i++) {
+                scalarState.place(i, random.nextDouble(table.minX - 5, table.maxX + 5),
+                        random.nextDouble(table.minY - 5, table.maxY + 5));
+                double speed = random.nextInt(4) == 0 ? random.nextDouble(0, 0.02) : random.nextDouble(0, 20);
+                double angle = random.nextDouble(-Math.PI, Math.PI);
+                scalarState.vx[i] = speed * Math.cos(angle);
+                scalarState.vy[i] = speed * Math.sin(angle);
+            }
+            BallState vectorState = new BallState(count);
+            vectorState.copyFrom(scalarState);
+
+            int from = random.nextInt(count);
+            int to = from + random.nextInt(count - from + 1);
+            double dt = random.nextBoolean() ? 1 : 1.0 / (1 + random.nextInt(8));
+            MotionKernel.SCALAR.move(scalarState, table, dt, from, to);
+            vector.move(vectorState, table, dt, from, to);
+
+            assertArrayEquals(scalarState.x, vectorState.x);
+            assertArrayEquals(scalarState.y, vectorState.y);
+            assertArrayEquals(scalarState.vx, vectorState.vx);
+            assertArrayEquals(scalarState.vy, vectorState.vy);
+        }
+    }
+
+    @Test
+    void worldStepsTheSameWithEitherKernel() {
+        World scalar = Shots.deterministic();
+        World simd = Shots.deterministic();
+        scalar.setMotionKernel(MotionKernel.SCALAR);
+        simd.setMotionKernel(vector);
+
+        assertEquals(Shots.play(scalar, 3, 40), Shots.play(simd, 3, 40));
+    }
+
+    @Test
+    void crowdStepsTheSameWithEitherKernel() {
+        TableGeometry table = TableGeometry.scaledFor(300, TableGeometry.SIX_POCKETS);
+        World scalar = ScenarioGenerator.world(table, 300, ScenarioGenerator.SCATTER, 4);
+        World simd = ScenarioGenerator.world(table, 300, ScenarioGenerator.SCATTER, 4);
+        scalar.deterministic = true;
+        simd.deterministic = true;
+        scalar.setMotionKernel(MotionKernel.SCALAR);
+        simd.setMotionKernel(vector);
+
+        assertEquals(Shots.play(scalar, 8, 5), Shots.play(simd, 8, 5));
+    }
+}
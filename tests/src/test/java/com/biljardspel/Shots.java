@@ -0,0 +1,51 @@
+package com.biljardspel;
+
+import java.util.SplittableRandom;
+
+/**
+ * The same random shots for every test: the white ball is put back at a random
+ * free place when it has fallen in, then shot in a random direction at a random
+ * speed, until the balls come to rest.
+ */
+final class Shots {
+
+    private Shots() {
+    }
+
+    static void placeAndShoot(World world, SplittableRandom random) {
+        if (world.isWhiteBallInHole()) {
+            double x;
+            double y;
+            do {
+                x = random.nextDouble(50, 400);
+                y = random.nextDouble(50, 580);
+            } while (!world.placeWhiteBall(x, y));
+            world.placeWhiteBallAt(x, y);
+        }
+        world.shoot(new Shot(random.nextDouble(-Math.PI, Math.PI), random.nextDouble(3, 12)));
+    }
+
+    /**
+     * Plays the shots, step by step, and returns a hash of the checksum after
+     * every step: two worlds that give the same took exactly the same course.
+     */
+    static long play(World world, long seed, int shots) {
+        SplittableRandom random = new SplittableRandom(seed);
+        long trail = 0;
+
+        for (int k = 0; k < shots; k++) {
+            placeAndShoot(world, random);
+            do {
+                world.step();
+                trail = trail * 31 + world.checksum();
+            } while (!world.allBallStopped());
+        }
+        return trail;
+    }
+
+    static World deterministic() {
+        World world = new World();
+        world.deterministic = true;
+        return world;
+    }
+}
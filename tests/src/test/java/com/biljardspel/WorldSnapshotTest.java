@@ -0,0 +1,45 @@
+package com.biljardspel;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.util.SplittableRandom;
+import org.junit.jupiter.api.Test;
+
+/**
+ * A world read back from a snapshot, in longs or in a buffer, must be the one
+ * that was written, and go on from there exactly as it would have.
+ */
+class WorldSnapshotTest {
+
+    @Test
+    void snapshotsReadBackToTheSameWorld() {
+        World world = Shots.deterministic();
+        World fromLongs = new World();
+        World fromBytes = new World();
+        long[] longs = new long[WorldSnapshot.longs(world.state.count) + 3];
+        ByteBuffer bytes = ByteBuffer.allocate(WorldSnapshot.bytes(world.state.count) + 5);
+        SplittableRandom random = new SplittableRandom(5);
+
+        for (int k = 0; k < 60; k++) {
+            Shots.placeAndShoot(world, random);
+            for (int step = 0; step < 30; step++) {   // in the middle of the shot, the balls still rolling
+                world.step();
+            }
+
+            WorldSnapshot.write(world, longs, 3);
+            WorldSnapshot.write(world, bytes, 5);
+            WorldSnapshot.read(fromLongs, longs, 3);
+            WorldSnapshot.read(fromBytes, bytes, 5);
+
+            assertEquals(world.checksum(), fromLongs.checksum());
+            assertEquals(world.checksum(), fromBytes.checksum());
+            assertEquals(WorldSnapshot.rules(world), WorldSnapshot.rules(fromLongs));
+            assertEquals(world.resultMessage, fromLongs.resultMessage);
+
+            world.runUntilRest(100000);
+            fromLongs.runUntilRest(100000);
+            assertEquals(world.checksum(), fromLongs.checksum());
+        }
+    }
+}
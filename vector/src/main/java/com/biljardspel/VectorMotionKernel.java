@@ -0,0 +1,64 @@
+package com.biljardspel;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * ****************************************************************************************
+ * VectorMotionKernel
+ * <p>
+ * The MotionKernel with the Vector API: a lane of balls at a time, as many as the
+ * widest vector of the machine holds, is moved, slowed down and bounced off the
+ * walls, with a mask for the balls that are moving. The arithmetic is the same
+ * as Physics.integrate() and Physics.bounceWalls(), operation for operation, and
+ * lane-wise add, multiply, divide and sqrt round as the scalar ones do, so the
+ * result is the same bits. The balls past the last whole lane go through
+ * MotionKernel.SCALAR.
+ * <p>
+ * Loaded by MotionKernel.load(); it needs java --add-modules jdk.incubator.vector.
+ */
+final class VectorMotionKernel implements MotionKernel {
+
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+    private static final double REST = Physics.FRICTION_PER_UPDATE * Physics.FRICTION_PER_UPDATE;
+
+    public void move(BallState s, TableGeometry t, double dt, int from, int to) {
+        double friction = Physics.FRICTION_PER_UPDATE * dt;
+        int lanes = SPECIES.length();
+        int i = from;
+
+        for (; i + lanes <= to; i += lanes) {
+            DoubleVector vx = DoubleVector.fromArray(SPECIES, s.vx, i);
+            DoubleVector vy = DoubleVector.fromArray(SPECIES, s.vy, i);
+            DoubleVector speed2 = vx.mul(vx).add(vy.mul(vy));
+            VectorMask<Double> moving = speed2.compare(VectorOperators.GT, REST);
+
+            if (!moving.anyTrue()) {
+                continue;
+            }
+
+            DoubleVector x = DoubleVector.fromArray(SPECIES, s.x, i).add(vx.mul(dt));
+            DoubleVector y = DoubleVector.fromArray(SPECIES, s.y, i).add(vy.mul(dt));
+
+            DoubleVector k = DoubleVector.broadcast(SPECIES, friction).div(speed2.lanewise(VectorOperators.SQRT));
+            vx = vx.sub(k.mul(vx));
+            vy = vy.sub(k.mul(vy));
+
+            VectorMask<Double> bounceX = x.compare(VectorOperators.GE, t.maxX).and(vx.compare(VectorOperators.GE, 0))
+                    .or(x.compare(VectorOperators.LE, t.minX).and(vx.compare(VectorOperators.LE, 0)));
+            VectorMask<Double> bounceY = y.compare(VectorOperators.GE, t.maxY).and(vy.compare(VectorOperators.GE, 0))
+                    .or(y.compare(VectorOperators.LE, t.minY).and(vy.compare(VectorOperators.LE, 0)));
+            vx = vx.blend(vx.neg(), bounceX);
+            vy = vy.blend(vy.neg(), bounceY);
+
+            x.intoArray(s.x, i, moving);
+            y.intoArray(s.y, i, moving);
+            vx.intoArray(s.vx, i, moving);
+            vy.intoArray(s.vy, i, moving);
+        }
+
+        MotionKernel.SCALAR.move(s, t, dt, i, to);
+    }
+}